@@ -0,0 +1,240 @@
+/**
+ * Bandwidth profile requested when connecting and the priority of each subscribed
+ * remote video track, picked from the size the track is drawn at: a track drawn no
+ * larger than the low render dimensions is low priority, no larger than the standard
+ * ones standard and high otherwise. The SDK then receives each track at the render
+ * dimensions of its priority and switches off low priority tracks first when the
+ * downlink gets tight, so bandwidth and decoding scale with the pixels on screen.
+ * <p>
+ * With the low bandwidth fallback every track is demoted by one priority while the
+ * local network quality level is at or below fallbackNetworkQualityLevel, and
+ * promoted again once the level has stayed good for a while.
+ * <p>
+ * Network quality callbacks arrive on the main thread, which is also where this
+ * controller keeps its state.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.BandwidthProfileMode;
+import com.twilio.video.BandwidthProfileOptions;
+import com.twilio.video.NetworkQualityLevel;
+import com.twilio.video.TrackPriority;
+import com.twilio.video.TrackSwitchOffMode;
+import com.twilio.video.VideoBandwidthProfileOptions;
+import com.twilio.video.VideoDimensions;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+class BandwidthProfileController implements RemoteRendererRegistry.PriorityPolicy {
+    static final int DEFAULT_FALLBACK_NETWORK_QUALITY_LEVEL = 1;
+    // The fallback ends once the level has stayed at or above this long enough
+    private static final int RECOVER_NETWORK_QUALITY_LEVEL = 3;
+    private static final long RECOVER_HOLD_MS = 10000;
+
+    private static final VideoDimensions DEFAULT_LOW_DIMENSIONS = new VideoDimensions(320, 180);
+    private static final VideoDimensions DEFAULT_STANDARD_DIMENSIONS = new VideoDimensions(640, 360);
+    private static final VideoDimensions DEFAULT_HIGH_DIMENSIONS = new VideoDimensions(1280, 720);
+
+    interface Listener {
+        void onFallbackChanged(boolean active);
+    }
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable recoverRunnable = () -> setFallbackActive(false);
+
+    private boolean enabled;
+    private BandwidthProfileMode mode = BandwidthProfileMode.GRID;
+    private TrackSwitchOffMode trackSwitchOffMode = TrackSwitchOffMode.PREDICTED;
+    // 0 leaves the limit up to the server, the bitrate is in kbps
+    private int maxTracks;
+    private int maxSubscriptionBitrate;
+    private VideoDimensions lowDimensions = DEFAULT_LOW_DIMENSIONS;
+    private VideoDimensions standardDimensions = DEFAULT_STANDARD_DIMENSIONS;
+    private VideoDimensions highDimensions = DEFAULT_HIGH_DIMENSIONS;
+    private boolean lowBandwidthFallback = true;
+    private int fallbackNetworkQualityLevel = DEFAULT_FALLBACK_NETWORK_QUALITY_LEVEL;
+
+    private boolean fallbackActive;
+    private int fallbackActivations;
+    private long fallbackSince;
+    private long fallbackMs;
+
+    BandwidthProfileController(Listener listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * mode and trackSwitchOffMode are the JS names, unknown ones keep the defaults. Render
+     * dimensions are {low, standard, high} of {width, height}, missing ones keep theirs.
+     */
+    void configure(boolean enabled, @Nullable String mode, @Nullable String trackSwitchOffMode,
+                   int maxTracks, int maxSubscriptionBitrate,
+                   @Nullable ReadableMap renderDimensions,
+                   boolean lowBandwidthFallback, int fallbackNetworkQualityLevel) {
+        this.enabled = enabled;
+        this.mode = parseMode(mode);
+        this.trackSwitchOffMode = parseTrackSwitchOffMode(trackSwitchOffMode);
+        this.maxTracks = Math.max(0, maxTracks);
+        this.maxSubscriptionBitrate = Math.max(0, maxSubscriptionBitrate);
+        lowDimensions = parseDimensions(renderDimensions, "low", DEFAULT_LOW_DIMENSIONS);
+        standardDimensions = parseDimensions(renderDimensions, "standard", DEFAULT_STANDARD_DIMENSIONS);
+        highDimensions = parseDimensions(renderDimensions, "high", DEFAULT_HIGH_DIMENSIONS);
+        this.lowBandwidthFallback = lowBandwidthFallback;
+        this.fallbackNetworkQualityLevel = fallbackNetworkQualityLevel;
+        if ((!enabled || !lowBandwidthFallback) && fallbackActive) {
+            setFallbackActive(false);
+        }
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /*
+     * Returns null when disabled, the profile only applies to the next connect.
+     */
+    @Nullable
+    BandwidthProfileOptions buildOptions() {
+        if (!enabled) {
+            return null;
+        }
+        Map<TrackPriority, VideoDimensions> dimensions = new HashMap<>();
+        dimensions.put(TrackPriority.LOW, lowDimensions);
+        dimensions.put(TrackPriority.STANDARD, standardDimensions);
+        dimensions.put(TrackPriority.HIGH, highDimensions);
+        VideoBandwidthProfileOptions.Builder builder = new VideoBandwidthProfileOptions.Builder()
+                .mode(mode)
+                .trackSwitchOffMode(trackSwitchOffMode)
+                .renderDimensions(dimensions);
+        if (maxTracks > 0) {
+            builder.maxTracks((long) maxTracks);
+        }
+        if (maxSubscriptionBitrate > 0) {
+            builder.maxSubscriptionBitrate((long) maxSubscriptionBitrate);
+        }
+        return new BandwidthProfileOptions(builder.build());
+    }
+
+    /*
+     * width and height are the largest size the track is drawn at in pixels, 0 while it
+     * is not drawn at all.
+     */
+    @Override
+    public TrackPriority getPriority(int width, int height) {
+        long area = (long) width * height;
+        TrackPriority priority;
+        if (area <= area(lowDimensions)) {
+            priority = TrackPriority.LOW;
+        } else if (area <= area(standardDimensions)) {
+            priority = TrackPriority.STANDARD;
+        } else {
+            priority = TrackPriority.HIGH;
+        }
+        if (fallbackActive) {
+            priority = priority == TrackPriority.HIGH ? TrackPriority.STANDARD : TrackPriority.LOW;
+        }
+        return priority;
+    }
+
+    private static long area(VideoDimensions dimensions) {
+        return (long) dimensions.width * dimensions.height;
+    }
+
+    void onLocalNetworkQualityLevelChanged(NetworkQualityLevel networkQualityLevel) {
+        if (!enabled || !lowBandwidthFallback) {
+            return;
+        }
+        // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO
+        int level = networkQualityLevel.ordinal() - 1;
+        if (level < 0) {
+            return;
+        }
+        if (level <= fallbackNetworkQualityLevel) {
+            mainThreadHandler.removeCallbacks(recoverRunnable);
+            if (!fallbackActive) {
+                setFallbackActive(true);
+            }
+        } else if (fallbackActive && level >= RECOVER_NETWORK_QUALITY_LEVEL) {
+            // The level is only reported when it changes, so the hold is timed here
+            mainThreadHandler.removeCallbacks(recoverRunnable);
+            mainThreadHandler.postDelayed(recoverRunnable, RECOVER_HOLD_MS);
+        } else {
+            mainThreadHandler.removeCallbacks(recoverRunnable);
+        }
+    }
+
+    /*
+     * Called when leaving a room, the next room starts without the fallback.
+     */
+    void reset() {
+        if (fallbackActive) {
+            setFallbackActive(false);
+        }
+    }
+
+    private void setFallbackActive(boolean active) {
+        long now = SystemClock.elapsedRealtime();
+        mainThreadHandler.removeCallbacks(recoverRunnable);
+        fallbackActive = active;
+        if (active) {
+            fallbackActivations++;
+            fallbackSince = now;
+        } else {
+            fallbackMs += now - fallbackSince;
+        }
+        listener.onFallbackChanged(active);
+    }
+
+    WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putBoolean("enabled", enabled);
+        metrics.putString("mode", mode.name().toLowerCase(Locale.US));
+        metrics.putString("trackSwitchOffMode", trackSwitchOffMode.name().toLowerCase(Locale.US));
+        metrics.putBoolean("fallbackActive", fallbackActive);
+        metrics.putInt("fallbackActivations", fallbackActivations);
+        metrics.putDouble("fallbackMs", fallbackMs
+                + (fallbackActive ? SystemClock.elapsedRealtime() - fallbackSince : 0));
+        return metrics;
+    }
+
+    private static BandwidthProfileMode parseMode(@Nullable String mode) {
+        if ("collaboration".equals(mode)) {
+            return BandwidthProfileMode.COLLABORATION;
+        } else if ("presentation".equals(mode)) {
+            return BandwidthProfileMode.PRESENTATION;
+        }
+        return BandwidthProfileMode.GRID;
+    }
+
+    private static TrackSwitchOffMode parseTrackSwitchOffMode(@Nullable String trackSwitchOffMode) {
+        if ("detected".equals(trackSwitchOffMode)) {
+            return TrackSwitchOffMode.DETECTED;
+        } else if ("disabled".equals(trackSwitchOffMode)) {
+            return TrackSwitchOffMode.DISABLED;
+        }
+        return TrackSwitchOffMode.PREDICTED;
+    }
+
+    private static VideoDimensions parseDimensions(@Nullable ReadableMap renderDimensions, String key,
+                                                   VideoDimensions defaultDimensions) {
+        if (renderDimensions == null || !renderDimensions.hasKey(key) || renderDimensions.isNull(key)) {
+            return defaultDimensions;
+        }
+        ReadableMap map = renderDimensions.getMap(key);
+        if (map == null || !map.hasKey("width") || !map.hasKey("height")) {
+            return defaultDimensions;
+        }
+        return new VideoDimensions(map.getInt("width"), map.getInt("height"));
+    }
+}
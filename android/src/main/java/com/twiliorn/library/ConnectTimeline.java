@@ -0,0 +1,116 @@
+/**
+ * Monotonic timestamps of the phases of one connect, from the connect request to
+ * the first remote frame, and their distribution across all connects since the
+ * view was created. Phases are reported in milliseconds since the connect was
+ * requested. Only used on the main thread.
+ */
+package com.twiliorn.library;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+class ConnectTimeline {
+    static final int AUDIO_TRACK_CREATED = 0;
+    static final int CAPTURER_CREATED = 1;
+    static final int VIDEO_TRACK_CREATED = 2;
+    static final int CONNECT_INVOKED = 3;
+    static final int CONNECTED = 4;
+    static final int FIRST_REMOTE_PARTICIPANT = 5;
+    static final int FIRST_REMOTE_TRACK_SUBSCRIBED = 6;
+    static final int FIRST_REMOTE_FRAME_RECEIVED = 7;
+
+    private static final String[] PHASE_NAMES = {
+            "audioTrackCreated",
+            "capturerCreated",
+            "videoTrackCreated",
+            "connectInvoked",
+            "connected",
+            "firstRemoteParticipant",
+            "firstRemoteTrackSubscribed",
+            "firstRemoteFrameReceived"
+    };
+
+    static final String OUTCOME_COMPLETED = "completed";
+    static final String OUTCOME_TIMED_OUT = "timedOut";
+    static final String OUTCOME_FAILED = "failed";
+    static final String OUTCOME_DISCONNECTED = "disconnected";
+
+    // 0 while no connect is being timed
+    private long startedAt;
+    private boolean prewarmed;
+    private final long[] phases = new long[PHASE_NAMES.length];
+    private final LatencyStats[] aggregates = new LatencyStats[PHASE_NAMES.length];
+    private int sessions;
+
+    ConnectTimeline() {
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregates[i] = new LatencyStats();
+        }
+    }
+
+    void start() {
+        startedAt = SystemClock.elapsedRealtime();
+        prewarmed = false;
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = -1;
+        }
+    }
+
+    boolean isRunning() {
+        return startedAt != 0;
+    }
+
+    void setPrewarmed(boolean prewarmed) {
+        this.prewarmed = prewarmed;
+    }
+
+    /*
+     * Only the first time a phase is reached counts.
+     */
+    void mark(int phase) {
+        if (startedAt != 0 && phases[phase] < 0) {
+            phases[phase] = SystemClock.elapsedRealtime() - startedAt;
+        }
+    }
+
+    boolean has(int phase) {
+        return startedAt != 0 && phases[phase] >= 0;
+    }
+
+    /*
+     * Ends the connect being timed, adds its phases to the aggregates and returns the
+     * onConnectTimeline event, or null when no connect was being timed.
+     */
+    WritableMap finish(String outcome) {
+        if (startedAt == 0) {
+            return null;
+        }
+        WritableMap phaseMap = new WritableNativeMap();
+        for (int i = 0; i < phases.length; i++) {
+            if (phases[i] >= 0) {
+                phaseMap.putDouble(PHASE_NAMES[i], phases[i]);
+                aggregates[i].add(phases[i]);
+            }
+        }
+        sessions++;
+        startedAt = 0;
+
+        WritableMap event = new WritableNativeMap();
+        event.putString("outcome", outcome);
+        event.putBoolean("prewarmed", prewarmed);
+        event.putMap("phases", phaseMap);
+        event.putMap("aggregate", getAggregate());
+        return event;
+    }
+
+    WritableMap getAggregate() {
+        WritableMap aggregate = new WritableNativeMap();
+        aggregate.putInt("sessions", sessions);
+        for (int i = 0; i < aggregates.length; i++) {
+            aggregate.putMap(PHASE_NAMES[i], aggregates[i].toMap());
+        }
+        return aggregate;
+    }
+}
@@ -9,8 +9,11 @@
 package com.twiliorn.library;
 
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import android.content.BroadcastReceiver;
 import android.content.Context;
@@ -22,12 +25,18 @@ import android.media.AudioManager;
 import android.os.Build;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Base64;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
 import android.util.Log;
 import android.view.View;
 
 import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
@@ -35,6 +44,7 @@ import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.events.RCTEventEmitter;
 import com.twilio.video.AudioTrackPublication;
+import com.twilio.video.BandwidthProfileOptions;
 import com.twilio.video.BaseTrackStats;
 import com.twilio.video.CameraCapturer;
 import com.twilio.video.ConnectOptions;
@@ -70,7 +80,6 @@ import com.twilio.video.TrackPublication;
 import com.twilio.video.TwilioException;
 import com.twilio.video.Video;
 import com.twilio.video.VideoConstraints;
-import com.twilio.video.VideoDimensions;
 
 import org.webrtc.voiceengine.WebRtcAudioManager;
 
@@ -85,6 +94,11 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_FAILURE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DISCONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_BINARY_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGES_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_TRANSFER_PROGRESS;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_ERROR;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DIAGNOSTICS_RECEIVED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_NETWORK_QUALITY_LEVELS_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_DATA_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_AUDIO_TRACK;
@@ -99,13 +113,28 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_R
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_SAMPLED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_PROFILE_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_MEDIA_PREPARED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_FIRST_FRAME;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_RESUMED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_TIMELINE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SNAPSHOT_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DOMINANT_SPEAKER_CHANGED;
 
 public class CustomTwilioVideoView extends View implements LifecycleEventListener, AudioManager.OnAudioFocusChangeListener {
     private static final String TAG = "CustomTwilioVideoView";
     private static final String DATA_TRACK_MESSAGE_THREAD_NAME = "DataTrackMessages";
+    private static final String LOCAL_MEDIA_THREAD_NAME = "LocalMedia";
     private boolean enableRemoteAudio = false;
     private boolean enableNetworkQualityReporting = false;
+    private NetworkQualityVerbosity localNetworkQualityVerbosity =
+            NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL;
+    private NetworkQualityVerbosity remoteNetworkQualityVerbosity =
+            NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL;
     private boolean isVideoEnabled = false;
 
     @Retention(RetentionPolicy.SOURCE)
@@ -119,6 +148,10 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             Events.ON_PARTICIPANT_DISCONNECTED,
             Events.ON_PARTICIPANT_ADDED_VIDEO_TRACK,
             Events.ON_DATATRACK_MESSAGE_RECEIVED,
+            Events.ON_DATATRACK_BINARY_MESSAGE_RECEIVED,
+            Events.ON_DATATRACK_MESSAGES_RECEIVED,
+            Events.ON_DATATRACK_TRANSFER_PROGRESS,
+            Events.ON_DATATRACK_ERROR,
             Events.ON_PARTICIPANT_ADDED_DATA_TRACK,
             Events.ON_PARTICIPANT_REMOVED_DATA_TRACK,
             Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK,
@@ -129,7 +162,18 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             Events.ON_PARTICIPANT_ENABLED_AUDIO_TRACK,
             Events.ON_PARTICIPANT_DISABLED_AUDIO_TRACK,
             Events.ON_STATS_RECEIVED,
-            Events.ON_NETWORK_QUALITY_LEVELS_CHANGED})
+            Events.ON_STATS_SAMPLED,
+            Events.ON_NETWORK_QUALITY_LEVELS_CHANGED,
+            Events.ON_DIAGNOSTICS_RECEIVED,
+            Events.ON_VIDEO_PROFILE_CHANGED,
+            Events.ON_LOCAL_MEDIA_PREPARED,
+            Events.ON_LOCAL_VIDEO_FIRST_FRAME,
+            Events.ON_LOCAL_VIDEO_RESUMED,
+            Events.ON_CONNECT_TIMELINE,
+            Events.ON_RECONNECTING,
+            Events.ON_RECONNECTED,
+            Events.ON_ROOM_SNAPSHOT_RECEIVED,
+            Events.ON_DOMINANT_SPEAKER_CHANGED})
     public @interface Events {
         String ON_CAMERA_SWITCHED = "onCameraSwitched";
         String ON_VIDEO_CHANGED = "onVideoChanged";
@@ -140,6 +184,10 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         String ON_PARTICIPANT_CONNECTED = "onRoomParticipantDidConnect";
         String ON_PARTICIPANT_DISCONNECTED = "onRoomParticipantDidDisconnect";
         String ON_DATATRACK_MESSAGE_RECEIVED = "onDataTrackMessageReceived";
+        String ON_DATATRACK_BINARY_MESSAGE_RECEIVED = "onDataTrackBinaryMessageReceived";
+        String ON_DATATRACK_MESSAGES_RECEIVED = "onDataTrackMessagesReceived";
+        String ON_DATATRACK_TRANSFER_PROGRESS = "onDataTrackTransferProgress";
+        String ON_DATATRACK_ERROR = "onDataTrackError";
         String ON_PARTICIPANT_ADDED_DATA_TRACK = "onParticipantAddedDataTrack";
         String ON_PARTICIPANT_REMOVED_DATA_TRACK = "onParticipantRemovedDataTrack";
         String ON_PARTICIPANT_ADDED_VIDEO_TRACK = "onParticipantAddedVideoTrack";
@@ -151,11 +199,25 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         String ON_PARTICIPANT_ENABLED_AUDIO_TRACK = "onParticipantEnabledAudioTrack";
         String ON_PARTICIPANT_DISABLED_AUDIO_TRACK = "onParticipantDisabledAudioTrack";
         String ON_STATS_RECEIVED = "onStatsReceived";
+        String ON_STATS_SAMPLED = "onStatsSampled";
         String ON_NETWORK_QUALITY_LEVELS_CHANGED = "onNetworkQualityLevelsChanged";
+        String ON_DIAGNOSTICS_RECEIVED = "onDiagnosticsReceived";
+        String ON_VIDEO_PROFILE_CHANGED = "onVideoProfileChanged";
+        String ON_LOCAL_MEDIA_PREPARED = "onLocalMediaPrepared";
+        String ON_LOCAL_VIDEO_FIRST_FRAME = "onLocalVideoFirstFrame";
+        String ON_LOCAL_VIDEO_RESUMED = "onLocalVideoResumed";
+        String ON_CONNECT_TIMELINE = "onConnectTimeline";
+        String ON_RECONNECTING = "onRoomIsReconnecting";
+        String ON_RECONNECTED = "onRoomDidReconnect";
+        String ON_ROOM_SNAPSHOT_RECEIVED = "onRoomSnapshotReceived";
+        String ON_DOMINANT_SPEAKER_CHANGED = "onDominantSpeakerDidChange";
     }
 
+    // Data track messages allowed to wait for the next frame before the oldest are dropped
+    private static final int MAX_QUEUED_DATATRACK_MESSAGES = 256;
+
     private final ThemedReactContext themedReactContext;
-    private final RCTEventEmitter eventEmitter;
+    private final EventDispatcher eventDispatcher;
 
     private AudioFocusRequest audioFocusRequest;
     private AudioAttributes playbackAttributes;
@@ -164,19 +226,37 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     /*
      * A Room represents communication between the client and one or more participants.
      */
-    private static Room room;
+    private Room room;
     private String roomName = null;
     private String accessToken = null;
     private LocalParticipant localParticipant;
 
     /*
-     * A VideoView receives frames from a local or remote video track and renders them
-     * to an associated view.
+     * The local previews and participant views bound to the same session id render this
+     * view's tracks, see setSessionId. The camera track is shared with other sessions
+     * through SharedCamera.
      */
-    private static PatchedVideoView thumbnailVideoView;
-    private static LocalVideoTrack localVideoTrack;
+    private VideoSession session = VideoSessionManager.bind(null);
+    private boolean sessionBound = true;
+    private LocalVideoTrack localVideoTrack;
+    private CameraCapturer cameraCapturer;
+    // Called on the main thread for the capturer this view uses, including a shared one
+    private final CameraCapturer.Listener cameraListener = new CameraCapturer.Listener() {
+        @Override
+        public void onFirstFrameAvailable() {
+            onFirstLocalFrame();
+        }
+
+        @Override
+        public void onCameraSwitched() {
+            setThumbnailMirror();
+        }
 
-    private static CameraCapturer cameraCapturer;
+        @Override
+        public void onError(int i) {
+            Log.i("CustomTwilioVideoView", "Error getting camera");
+        }
+    };
     private LocalAudioTrack localAudioTrack;
     private AudioManager audioManager;
     private int previousAudioMode;
@@ -184,21 +264,150 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     private IntentFilter intentFilter;
     private BecomingNoisyReceiver myNoisyAudioStreamReceiver;
 
+    /*
+     * prepareLocalMedia opens the camera on this thread ahead of connecting. A connect
+     * requested while it is still opening waits for it in pendingConnect.
+     */
+    private HandlerThread localMediaThread;
+    private Handler localMediaThreadHandler;
+    private boolean localMediaPreparing;
+    private Runnable pendingConnect;
+
+    // Monotonic timestamps (elapsedRealtime) for the join to first local frame latency, 0 if unset
+    private long prepareStartedAt;
+    private long firstLocalFrameAt;
+    private long joinStartedAt;
+    private boolean joinPrewarmed;
+    private final LatencyStats prewarmedJoinLatency = new LatencyStats();
+    private final LatencyStats coldJoinLatency = new LatencyStats();
+
+    /*
+     * What happens to the local video track while the app is in the background.
+     */
+    public enum BackgroundVideoPolicy {
+        // Unpublish and release the track, the camera is free for other apps
+        RELEASE,
+        // Disable the track and keep it published, the camera stays open
+        DISABLE,
+        // Disable the track and release it if the app is still in the background after the grace period
+        GRACE
+    }
+
+    static final int DEFAULT_BACKGROUND_GRACE_MS = 10000;
+    private BackgroundVideoPolicy backgroundVideoPolicy = BackgroundVideoPolicy.RELEASE;
+    private int backgroundGraceMs = DEFAULT_BACKGROUND_GRACE_MS;
+    private boolean hostPaused;
+    // The track was kept but disabled when the app went to the background
+    private boolean localVideoSuspended;
+    private final Runnable releaseBackgroundVideoRunnable = this::releaseLocalVideoTrack;
+    private long resumeStartedAt;
+    private boolean resumeReusedTrack;
+    private FirstFrameProbe resumeProbe;
+    private final LatencyStats resumeLatency = new LatencyStats();
+
+    /*
+     * Phases of the current connect, reported once the first remote frame arrives or the
+     * connect ends without one.
+     */
+    private static final int CONNECT_TIMELINE_TIMEOUT_MS = 30000;
+    private final ConnectTimeline connectTimeline = new ConnectTimeline();
+    private final Runnable connectTimelineTimeoutRunnable =
+            () -> finishConnectTimeline(ConnectTimeline.OUTCOME_TIMED_OUT);
+    private FirstFrameProbe remoteFrameProbe;
+    private RemoteVideoTrack remoteFrameProbeTrack;
+
+    /*
+     * Reconnect state, downtime and attempts, and retried connects after the room was
+     * disconnected by an error, see configureReconnection.
+     */
+    private final RoomReconnection roomReconnection = new RoomReconnection(this::retryConnect);
+    // Local tracks that were published when the room started reconnecting
+    private boolean audioPublishedBeforeReconnect;
+    private boolean videoPublishedBeforeReconnect;
+    private boolean dataPublishedBeforeReconnect;
+
+    // Participants and publications as of the latest callbacks, see getRoomSnapshot
+    private final RoomStateRegistry roomState = new RoomStateRegistry();
+
       // Dedicated thread and handler for messages received from a RemoteDataTrack
     private final HandlerThread dataTrackMessageThread =
             new HandlerThread(DATA_TRACK_MESSAGE_THREAD_NAME);
     private Handler dataTrackMessageThreadHandler;
+    // Batches inbound messages on the data track message thread when enabled
+    private DataTrackMessageBuffer dataTrackMessageBuffer;
+    // Reassembles chunked payloads sent with sendLarge on the data track message thread
+    private DataTrackReassembler dataTrackReassembler;
+    // Inflates compressed messages on the data track message thread
+    private final DataTrackCompression dataTrackCompression = new DataTrackCompression();
 
     private LocalDataTrack localDataTrack;
+    // Sends on the local data track from its own thread, see sendString
+    private DataTrackSender dataTrackSender;
 
     // Map used to map remote data tracks to remote participants
     private final Map<RemoteDataTrack, RemoteParticipant> dataTrackRemoteParticipantMap =
             new HashMap<>();
 
+    // Holds network quality levels before they are reported, see connectToRoomWrapper
+    private final NetworkQualityFilter networkQualityFilter =
+            new NetworkQualityFilter(this::pushNetworkQualityLevel);
+
+    // Picks the local capture profile and encoding bitrates, see configureVideoAdaptation
+    private final VideoAdaptationController videoAdaptationController =
+            new VideoAdaptationController(this::onVideoProfileChanged);
+
+    // Bandwidth profile of the next connect and remote track priorities, see configureBandwidthProfile
+    private final BandwidthProfileController bandwidthProfileController =
+            new BandwidthProfileController(this::onBandwidthFallbackChanged);
+
+    // Server or audio level based dominant speaker, see configureDominantSpeaker
+    private final DominantSpeakerDetector dominantSpeakerDetector =
+            new DominantSpeakerDetector(this::pushDominantSpeakerChanged);
+
+    // Video codec order offered when connecting, see setPreferredVideoCodecs
+    private final VideoCodecSelector videoCodecSelector = new VideoCodecSelector();
+
+    // Periodic stats sampling, started and stopped from JS
+    private final StatsSampler statsSampler = new StatsSampler(
+            sample -> pushEvent(CustomTwilioVideoView.this, ON_STATS_SAMPLED, sample));
+
     public CustomTwilioVideoView(ThemedReactContext context) {
         super(context);
         this.themedReactContext = context;
-        this.eventEmitter = themedReactContext.getJSModule(RCTEventEmitter.class);
+        this.eventDispatcher = new EventDispatcher(
+                themedReactContext.getJSModule(RCTEventEmitter.class), this);
+
+        /*
+         * Connection and track lifecycle events skip the frame-aligned batching, high volume
+         * events are coalesced or capped while they wait for the next frame.
+         */
+        eventDispatcher.setHighPriority(
+                ON_CONNECTED,
+                ON_CONNECT_FAILURE,
+                ON_DISCONNECTED,
+                ON_RECONNECTING,
+                ON_RECONNECTED,
+                ON_DOMINANT_SPEAKER_CHANGED,
+                ON_PARTICIPANT_CONNECTED,
+                ON_PARTICIPANT_DISCONNECTED,
+                ON_PARTICIPANT_ADDED_VIDEO_TRACK,
+                ON_PARTICIPANT_REMOVED_VIDEO_TRACK,
+                ON_PARTICIPANT_ADDED_AUDIO_TRACK,
+                ON_PARTICIPANT_REMOVED_AUDIO_TRACK,
+                ON_PARTICIPANT_ADDED_DATA_TRACK,
+                ON_PARTICIPANT_REMOVED_DATA_TRACK,
+                ON_PARTICIPANT_ENABLED_VIDEO_TRACK,
+                ON_PARTICIPANT_DISABLED_VIDEO_TRACK,
+                ON_PARTICIPANT_ENABLED_AUDIO_TRACK,
+                ON_PARTICIPANT_DISABLED_AUDIO_TRACK);
+        eventDispatcher.setCoalesced(
+                ON_NETWORK_QUALITY_LEVELS_CHANGED,
+                ON_DATATRACK_TRANSFER_PROGRESS,
+                // Not onStatsReceived, every getStats call gets its own reply
+                ON_STATS_SAMPLED);
+        eventDispatcher.setMaxQueued(ON_DATATRACK_MESSAGE_RECEIVED, MAX_QUEUED_DATATRACK_MESSAGES);
+        eventDispatcher.setMaxQueued(ON_DATATRACK_BINARY_MESSAGE_RECEIVED, MAX_QUEUED_DATATRACK_MESSAGES);
+        eventDispatcher.setMaxQueued(ON_DATATRACK_MESSAGES_RECEIVED, MAX_QUEUED_DATATRACK_MESSAGES);
 
         // add lifecycle for onResume and on onPause
         themedReactContext.addLifecycleEventListener(this);
@@ -219,47 +428,31 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         // Create the local data track
        // localDataTrack = LocalDataTrack.create(this);
        localDataTrack = LocalDataTrack.create(getContext());
+       if (localDataTrack != null) {
+           dataTrackSender = new DataTrackSender(localDataTrack);
+       }
 
        // Start the thread where data messages are received
         dataTrackMessageThread.start();
         dataTrackMessageThreadHandler = new Handler(dataTrackMessageThread.getLooper());
+        dataTrackMessageBuffer = new DataTrackMessageBuffer(dataTrackMessageThreadHandler, messages -> {
+            WritableMap event = new WritableNativeMap();
+            event.putArray("messages", messages);
+            pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGES_RECEIVED, event);
+        });
+        dataTrackReassembler = new DataTrackReassembler(dataTrackMessageThreadHandler, dataTrackReassemblerListener());
 
     }
 
     // ===== SETUP =================================================================================
 
     private VideoConstraints buildVideoConstraints() {
-        return new VideoConstraints.Builder()
-                .minVideoDimensions(VideoDimensions.CIF_VIDEO_DIMENSIONS)
-                .maxVideoDimensions(VideoDimensions.CIF_VIDEO_DIMENSIONS)
-                .minFps(5)
-                .maxFps(15)
-                .build();
+        return videoAdaptationController.getProfile().toVideoConstraints();
     }
 
     private CameraCapturer createCameraCaputer(Context context, CameraCapturer.CameraSource cameraSource) {
-        CameraCapturer newCameraCapturer = null;
         try {
-            newCameraCapturer = new CameraCapturer(
-                    context,
-                    cameraSource,
-                    new CameraCapturer.Listener() {
-                        @Override
-                        public void onFirstFrameAvailable() {
-                        }
-
-                        @Override
-                        public void onCameraSwitched() {
-                            setThumbnailMirror();
-                        }
-
-                        @Override
-                        public void onError(int i) {
-                            Log.i("CustomTwilioVideoView", "Error getting camera");
-                        }
-                    }
-            );
-            return newCameraCapturer;
+            return SharedCamera.createCapturer(context, cameraSource, cameraListener);
         } catch (Exception e) {
             return null;
         }
@@ -267,6 +460,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
     private boolean createLocalVideo(boolean enableVideo) {
       isVideoEnabled = enableVideo;
+        firstLocalFrameAt = 0;
         // Share your camera
         cameraCapturer = this.createCameraCaputer(getContext(), CameraCapturer.CameraSource.FRONT_CAMERA);
         if (cameraCapturer == null){
@@ -278,44 +472,217 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             pushEvent(CustomTwilioVideoView.this, ON_CONNECT_FAILURE, event);
             return false;
         }
+        connectTimeline.mark(ConnectTimeline.CAPTURER_CREATED);
 
         if (cameraCapturer.getSupportedFormats().size() > 0) {
             localVideoTrack = LocalVideoTrack.create(getContext(), enableVideo, cameraCapturer, buildVideoConstraints());
-            if (thumbnailVideoView != null && localVideoTrack != null) {
-                localVideoTrack.addRenderer(thumbnailVideoView);
+            connectTimeline.mark(ConnectTimeline.VIDEO_TRACK_CREATED);
+            if (localVideoTrack != null) {
+                SharedCamera.open(this, cameraListener, cameraCapturer, localVideoTrack);
+            }
+            session.setLocalVideoTrack(localVideoTrack);
+            setThumbnailMirror();
+        }
+        return true;
+    }
+
+    // ===== LOCAL MEDIA ===========================================================================
+
+    /*
+     * Opens the camera and creates the local video track on a background thread before
+     * connecting, so local previews show video before joining and connectToRoom publishes
+     * the same track without restarting the capturer.
+     */
+    public void prepareLocalMedia(final boolean enableVideo) {
+        if (cameraCapturer != null || localMediaPreparing) {
+            return;
+        }
+        isVideoEnabled = enableVideo;
+        firstLocalFrameAt = 0;
+        prepareStartedAt = SystemClock.elapsedRealtime();
+        if (acquireSharedCamera(enableVideo)) {
+            WritableMap event = new WritableNativeMap();
+            event.putDouble("prepareMs", 0);
+            event.putBoolean("shared", true);
+            pushEvent(CustomTwilioVideoView.this, ON_LOCAL_MEDIA_PREPARED, event);
+            return;
+        }
+        cameraCapturer = this.createCameraCaputer(getContext(), CameraCapturer.CameraSource.FRONT_CAMERA);
+        if (cameraCapturer == null) {
+            cameraCapturer = this.createCameraCaputer(getContext(), CameraCapturer.CameraSource.BACK_CAMERA);
+        }
+        if (cameraCapturer == null) {
+            WritableMap event = new WritableNativeMap();
+            event.putString("error", "No camera is supported on this device");
+            pushEvent(CustomTwilioVideoView.this, ON_LOCAL_MEDIA_PREPARED, event);
+            return;
+        }
+
+        localMediaPreparing = true;
+        final CameraCapturer capturer = cameraCapturer;
+        final VideoConstraints videoConstraints = buildVideoConstraints();
+        if (localMediaThread == null) {
+            localMediaThread = new HandlerThread(LOCAL_MEDIA_THREAD_NAME);
+            localMediaThread.start();
+            localMediaThreadHandler = new Handler(localMediaThread.getLooper());
+        }
+        localMediaThreadHandler.post(() -> {
+            final LocalVideoTrack track = capturer.getSupportedFormats().size() > 0
+                    ? LocalVideoTrack.create(getContext(), enableVideo, capturer, videoConstraints)
+                    : null;
+            handler.post(() -> onLocalMediaPrepared(capturer, track));
+        });
+    }
+
+    private void onLocalMediaPrepared(CameraCapturer capturer, @Nullable LocalVideoTrack track) {
+        localMediaPreparing = false;
+        if (capturer != cameraCapturer) {
+            // Disconnected or released while the camera was opening
+            if (track != null) {
+                track.release();
             }
+            pendingConnect = null;
+            return;
+        }
+
+        WritableMap event = new WritableNativeMap();
+        if (track != null && SharedCamera.getCapturer() != null) {
+            // Another session opened the camera meanwhile, use its track
+            track.release();
+            cameraCapturer = null;
+            acquireSharedCamera(isVideoEnabled);
+            event.putDouble("prepareMs", SystemClock.elapsedRealtime() - prepareStartedAt);
+            event.putBoolean("shared", true);
+        } else if (track != null) {
+            localVideoTrack = track;
+            SharedCamera.open(this, cameraListener, capturer, track);
+            session.setLocalVideoTrack(track);
             setThumbnailMirror();
+            event.putDouble("prepareMs", SystemClock.elapsedRealtime() - prepareStartedAt);
+        } else {
+            // Give up on this capturer so a later prepare or connect opens the camera again
+            capturer.stopCapture();
+            cameraCapturer = null;
+            joinPrewarmed = false;
+            connectTimeline.setPrewarmed(false);
+            event.putString("error", "The camera has no supported capture formats");
+        }
+        pushEvent(CustomTwilioVideoView.this, ON_LOCAL_MEDIA_PREPARED, event);
+
+        if (pendingConnect != null) {
+            Runnable connect = pendingConnect;
+            pendingConnect = null;
+            // A connect that waited for a failed prepare creates local video the usual way
+            if (track == null && !createLocalVideo(isVideoEnabled)) {
+                joinStartedAt = 0;
+                finishConnectTimeline(ConnectTimeline.OUTCOME_FAILED);
+                return;
+            }
+            connect.run();
         }
+    }
+
+    /*
+     * Publishes and previews the camera track another session already has open, returns
+     * false when no session has the camera open. The enabled state of the track is shared
+     * by all sessions using it.
+     */
+    private boolean acquireSharedCamera(boolean enableVideo) {
+        LocalVideoTrack track = SharedCamera.acquire(this, cameraListener);
+        if (track == null) {
+            return false;
+        }
+        cameraCapturer = SharedCamera.getCapturer();
+        localVideoTrack = track;
+        localVideoTrack.enable(enableVideo);
+        // The camera is already capturing
+        firstLocalFrameAt = SystemClock.elapsedRealtime();
+        session.setLocalVideoTrack(localVideoTrack);
+        setThumbnailMirror();
         return true;
     }
 
+    /*
+     * Stops using the local video track, which is only released once no other session
+     * uses it either.
+     */
+    private void dropLocalVideoTrack() {
+        session.setLocalVideoTrack(null);
+        if (SharedCamera.release(this, localVideoTrack)) {
+            localVideoTrack.release();
+        }
+        localVideoTrack = null;
+    }
+
+    private void onFirstLocalFrame() {
+        if (firstLocalFrameAt == 0) {
+            firstLocalFrameAt = SystemClock.elapsedRealtime();
+        }
+        reportJoinToFirstLocalFrame();
+    }
+
+    /*
+     * Reports the latency once both the join was requested and the first local frame was
+     * captured, a pre-warmed camera usually had its first frame before the join.
+     */
+    private void reportJoinToFirstLocalFrame() {
+        if (joinStartedAt == 0 || firstLocalFrameAt == 0) {
+            return;
+        }
+        long latency = Math.max(0, firstLocalFrameAt - joinStartedAt);
+        (joinPrewarmed ? prewarmedJoinLatency : coldJoinLatency).add(latency);
+
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("prewarmed", joinPrewarmed);
+        event.putDouble("joinToFirstFrameMs", latency);
+        if (joinPrewarmed) {
+            event.putDouble("prepareToFirstFrameMs", firstLocalFrameAt - prepareStartedAt);
+        }
+        joinStartedAt = 0;
+        pushEvent(CustomTwilioVideoView.this, ON_LOCAL_VIDEO_FIRST_FRAME, event);
+    }
+
     // ===== LIFECYCLE EVENTS ======================================================================
 
 
     @Override
     public void onHostResume() {
+        handler.removeCallbacks(releaseBackgroundVideoRunnable);
+        boolean resumedFromBackground = hostPaused;
+        hostPaused = false;
         /*
          * In case it wasn't set.
          */
         if (themedReactContext.getCurrentActivity() != null) {
+            boolean reusedTrack = localVideoTrack != null;
+            if (localVideoSuspended && localVideoTrack != null) {
+                localVideoTrack.enable(isVideoEnabled);
+            }
+            localVideoSuspended = false;
+
             /*
              * If the local video track was released when the app was put in the background, recreate.
              */
-            if (cameraCapturer != null && localVideoTrack == null) {
+            if (cameraCapturer != null && localVideoTrack == null && !acquireSharedCamera(isVideoEnabled)) {
                 localVideoTrack = LocalVideoTrack.create(getContext(), isVideoEnabled, cameraCapturer, buildVideoConstraints());
+                if (localVideoTrack != null) {
+                    SharedCamera.open(this, cameraListener, cameraCapturer, localVideoTrack);
+                }
             }
 
             if (localVideoTrack != null) {
-                if (thumbnailVideoView != null) {
-                    localVideoTrack.addRenderer(thumbnailVideoView);
-                }
+                session.setLocalVideoTrack(localVideoTrack);
 
                 /*
                  * If connected to a Room then share the local video track.
                  */
-                if (localParticipant != null) {
+                if (localParticipant != null && !isLocalVideoTrackPublished()) {
                     localParticipant.publishTrack(localVideoTrack);
                 }
+
+                if (resumedFromBackground) {
+                    startResumeProbe(reusedTrack);
+                }
             }
 
             themedReactContext.getCurrentActivity().setVolumeControlStream(AudioManager.STREAM_VOICE_CALL);
@@ -325,6 +692,40 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
     @Override
     public void onHostPause() {
+        hostPaused = true;
+        stopResumeProbe();
+        if (localVideoTrack == null) {
+            return;
+        }
+        switch (backgroundVideoPolicy) {
+            case DISABLE:
+                suspendLocalVideoTrack();
+                break;
+            case GRACE:
+                suspendLocalVideoTrack();
+                handler.removeCallbacks(releaseBackgroundVideoRunnable);
+                handler.postDelayed(releaseBackgroundVideoRunnable, backgroundGraceMs);
+                break;
+            default:
+                releaseLocalVideoTrack();
+                break;
+        }
+    }
+
+    /*
+     * Remote participants see the track disabled rather than removed, and no new
+     * negotiation is needed when it is enabled again.
+     */
+    private void suspendLocalVideoTrack() {
+        if (localVideoTrack != null && !localVideoSuspended) {
+            localVideoTrack.enable(false);
+            localVideoSuspended = true;
+        }
+    }
+
+    private void releaseLocalVideoTrack() {
+        localVideoSuspended = false;
+        stopResumeProbe();
         /*
          * Release the local video track before going in the background. This ensures that the
          * camera can be used by other applications while this app is in the background.
@@ -339,13 +740,68 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
                 localParticipant.unpublishTrack(localVideoTrack);
             }
 
-            localVideoTrack.release();
-            localVideoTrack = null;
+            dropLocalVideoTrack();
+        }
+    }
+
+    public void setBackgroundVideoPolicy(BackgroundVideoPolicy policy, int graceMs) {
+        backgroundVideoPolicy = policy;
+        backgroundGraceMs = Math.max(0, graceMs);
+    }
+
+    /*
+     * Times the first frame the local track delivers after coming back to the foreground,
+     * whether the track was kept or created again.
+     */
+    private void startResumeProbe(boolean reusedTrack) {
+        stopResumeProbe();
+        resumeStartedAt = SystemClock.elapsedRealtime();
+        resumeReusedTrack = reusedTrack;
+        resumeProbe = new FirstFrameProbe(this::onResumeFirstFrame);
+        localVideoTrack.addRenderer(resumeProbe);
+    }
+
+    private void stopResumeProbe() {
+        if (resumeProbe != null) {
+            if (localVideoTrack != null) {
+                localVideoTrack.removeRenderer(resumeProbe);
+            }
+            resumeProbe = null;
+        }
+    }
+
+    private void onResumeFirstFrame(FirstFrameProbe probe) {
+        if (probe != resumeProbe) {
+            return;
+        }
+        stopResumeProbe();
+        long latency = SystemClock.elapsedRealtime() - resumeStartedAt;
+        resumeLatency.add(latency);
+
+        WritableMap event = new WritableNativeMap();
+        event.putString("policy", backgroundVideoPolicy.name().toLowerCase());
+        event.putBoolean("reusedTrack", resumeReusedTrack);
+        event.putDouble("resumeToFirstFrameMs", latency);
+        pushEvent(CustomTwilioVideoView.this, ON_LOCAL_VIDEO_RESUMED, event);
+    }
+
+    private boolean isLocalVideoTrackPublished() {
+        if (localParticipant == null || localVideoTrack == null) {
+            return false;
+        }
+        for (LocalVideoTrackPublication publication : localParticipant.getLocalVideoTracks()) {
+            if (publication.getLocalVideoTrack() == localVideoTrack) {
+                return true;
+            }
         }
+        return false;
     }
 
     @Override
     public void onHostDestroy() {
+        roomReconnection.onDisconnected();
+        handler.removeCallbacks(releaseBackgroundVideoRunnable);
+        stopResumeProbe();
         /*
          * Always disconnect from the room before leaving the Activity to
          * ensure any memory allocated to the Room resource is freed.
@@ -359,8 +815,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
          * Release the local media ensuring any memory allocated to audio or video is freed.
          */
         if (localVideoTrack != null) {
-            localVideoTrack.release();
-            localVideoTrack = null;
+            dropLocalVideoTrack();
         }
 
         if (localAudioTrack != null) {
@@ -368,8 +823,12 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             localAudioTrack = null;
         }
 
-        // Quit the data track message thread
-        dataTrackMessageThread.quit();
+        statsSampler.stop();
+        videoAdaptationController.stop();
+        bandwidthProfileController.reset();
+        dominantSpeakerDetector.stop();
+        eventDispatcher.release();
+        releaseBackgroundThreads();
 
 
     }
@@ -377,9 +836,57 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     public void releaseResource() {
         themedReactContext.removeLifecycleEventListener(this);
         room = null;
-        localVideoTrack = null;
-        thumbnailVideoView = null;
+        if (localVideoTrack != null) {
+            dropLocalVideoTrack();
+        }
         cameraCapturer = null;
+        if (sessionBound) {
+            sessionBound = false;
+            VideoSessionManager.unbind(session);
+        }
+        releaseBackgroundThreads();
+    }
+
+    /*
+     * Quits the threads the view started. releaseResource removes the lifecycle listener, so
+     * an unmounted view never gets onHostDestroy and both have to call this.
+     */
+    private void releaseBackgroundThreads() {
+        if (dataTrackSender != null) {
+            dataTrackSender.release();
+            dataTrackSender = null;
+        }
+        if (dataTrackMessageThread.isAlive()) {
+            // Free the inflater and quit the data track message thread
+            dataTrackMessageThreadHandler.post(dataTrackCompression::release);
+            dataTrackMessageThread.quitSafely();
+        }
+        if (localMediaThread != null) {
+            // A track still being created is released in onLocalMediaPrepared
+            localMediaThread.quitSafely();
+            localMediaThread = null;
+            localMediaThreadHandler = null;
+        }
+    }
+
+    /*
+     * Binds this view to the session whose previews render its tracks, local previews move
+     * over with the local video track. The session can not change while connected.
+     */
+    public void setSessionId(@Nullable String sessionId) {
+        String id = VideoSessionManager.resolveId(sessionId);
+        if (!sessionBound || id.equals(session.id)) {
+            return;
+        }
+        if (room != null) {
+            Log.w(TAG, "sessionId can not change while connected to a room");
+            return;
+        }
+        session.setLocalVideoTrack(null);
+        VideoSessionManager.unbind(session);
+        session = VideoSessionManager.bind(id);
+        session.setLocalVideoTrack(localVideoTrack);
+        setThumbnailMirror();
     }
 
     // ====== CONNECTING ===========================================================================
@@ -387,29 +894,82 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     public void connectToRoomWrapper(
             String roomName, String accessToken, boolean enableAudio, boolean enableVideo,
             boolean enableRemoteAudio, boolean enableNetworkQualityReporting) {
+        connectToRoomWrapper(roomName, accessToken, enableAudio, enableVideo, enableRemoteAudio,
+                enableNetworkQualityReporting, NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL,
+                NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL, 0);
+    }
+
+    /*
+     * networkQualityHoldMs is how long a participant's new network quality level has to
+     * hold before it is reported.
+     */
+    public void connectToRoomWrapper(
+            String roomName, String accessToken, boolean enableAudio, boolean enableVideo,
+            boolean enableRemoteAudio, boolean enableNetworkQualityReporting,
+            NetworkQualityVerbosity localNetworkQualityVerbosity,
+            NetworkQualityVerbosity remoteNetworkQualityVerbosity, int networkQualityHoldMs) {
         this.roomName = roomName;
         this.accessToken = accessToken;
         this.enableRemoteAudio = enableAudio;
         this.enableNetworkQualityReporting = enableNetworkQualityReporting;
+        this.localNetworkQualityVerbosity = localNetworkQualityVerbosity;
+        this.remoteNetworkQualityVerbosity = remoteNetworkQualityVerbosity;
+        networkQualityFilter.setHoldMs(networkQualityHoldMs);
+
+        roomReconnection.onDisconnected();
+        finishConnectTimeline(ConnectTimeline.OUTCOME_DISCONNECTED);
+        connectTimeline.start();
 
         // Share your microphone
         localAudioTrack = LocalAudioTrack.create(getContext(), enableAudio);
+        connectTimeline.mark(ConnectTimeline.AUDIO_TRACK_CREATED);
 
+        joinStartedAt = SystemClock.elapsedRealtime();
+        if (cameraCapturer == null) {
+            // A camera another session has open is published as it is
+            acquireSharedCamera(enableVideo);
+        }
+        joinPrewarmed = cameraCapturer != null;
+        connectTimeline.setPrewarmed(joinPrewarmed);
         if (cameraCapturer == null) {
             boolean createVideoStatus = createLocalVideo(enableVideo);
             if (!createVideoStatus) {
                 // No need to connect to room if video creation failed
+                joinStartedAt = 0;
+                finishConnectTimeline(ConnectTimeline.OUTCOME_FAILED);
                 return;
         }
-    }
-        connectToRoom(enableAudio);
+    } else if (localVideoTrack != null) {
+            // Prepared ahead with prepareLocalMedia, publish that track as it is
+            isVideoEnabled = enableVideo;
+            localVideoTrack.enable(enableVideo);
+        }
+
+        if (localMediaPreparing) {
+            pendingConnect = () -> {
+                if (localVideoTrack != null) {
+                    localVideoTrack.enable(enableVideo);
+                }
+                connectToRoom(enableAudio);
+            };
+        } else {
+            connectToRoom(enableAudio);
+        }
+        reportJoinToFirstLocalFrame();
     }
 
     public void connectToRoom(boolean enableAudio) {
+        setAudioFocus(enableAudio);
+        connect();
+    }
+
+    /*
+     * Audio focus is already held when a connect is retried, see retryConnect.
+     */
+    private void connect() {
         /*
          * Create a VideoClient allowing you to connect to a Room
          */
-        setAudioFocus(enableAudio);
         ConnectOptions.Builder connectOptionsBuilder = new ConnectOptions.Builder(this.accessToken);
 
         if (this.roomName != null) {
@@ -424,6 +984,22 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             connectOptionsBuilder.videoTracks(Collections.singletonList(localVideoTrack));
         }
 
+        if (videoAdaptationController.isEnabled()) {
+            connectOptionsBuilder.encodingParameters(
+                    videoAdaptationController.getProfile().toEncodingParameters());
+        }
+
+        BandwidthProfileOptions bandwidthProfile = bandwidthProfileController.buildOptions();
+        if (bandwidthProfile != null) {
+            connectOptionsBuilder.bandwidthProfile(bandwidthProfile);
+        }
+
+        if (dominantSpeakerDetector.requestServerDetection()) {
+            connectOptionsBuilder.enableDominantSpeaker(true);
+        }
+
+        connectOptionsBuilder.preferVideoCodecs(videoCodecSelector.getPreferredCodecs());
+
         //LocalDataTrack localDataTrack = LocalDataTrack.create(getContext());
 
          if (localDataTrack != null) {
@@ -433,13 +1009,46 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
          if (enableNetworkQualityReporting) {
              connectOptionsBuilder.enableNetworkQuality(true);
              connectOptionsBuilder.networkQualityConfiguration(new NetworkQualityConfiguration(
-                     NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL,
-                     NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL));
+                     localNetworkQualityVerbosity,
+                     remoteNetworkQualityVerbosity));
          }
 
+        connectTimeline.mark(ConnectTimeline.CONNECT_INVOKED);
         room = Video.connect(getContext(), connectOptionsBuilder.build(), roomListener());
     }
 
+    /*
+     * The first subscribed remote video track gets a probe renderer that notes when its
+     * first frame is received. It times frame delivery, not drawing by a view.
+     */
+    private void onRemoteTrackSubscribedForTimeline(@Nullable RemoteVideoTrack videoTrack) {
+        connectTimeline.mark(ConnectTimeline.FIRST_REMOTE_TRACK_SUBSCRIBED);
+        if (videoTrack == null || remoteFrameProbe != null || !connectTimeline.isRunning()) {
+            return;
+        }
+        remoteFrameProbe = new FirstFrameProbe(probe -> {
+            if (probe == remoteFrameProbe) {
+                connectTimeline.mark(ConnectTimeline.FIRST_REMOTE_FRAME_RECEIVED);
+                finishConnectTimeline(ConnectTimeline.OUTCOME_COMPLETED);
+            }
+        });
+        remoteFrameProbeTrack = videoTrack;
+        videoTrack.addRenderer(remoteFrameProbe);
+    }
+
+    private void finishConnectTimeline(String outcome) {
+        handler.removeCallbacks(connectTimelineTimeoutRunnable);
+        if (remoteFrameProbe != null) {
+            remoteFrameProbeTrack.removeRenderer(remoteFrameProbe);
+            remoteFrameProbe = null;
+            remoteFrameProbeTrack = null;
+        }
+        WritableMap event = connectTimeline.finish(outcome);
+        if (event != null) {
+            pushEvent(CustomTwilioVideoView.this, ON_CONNECT_TIMELINE, event);
+        }
+    }
+
     private void setAudioFocus(boolean focus) {
         if (focus) {
             previousAudioMode = audioManager.getMode();
@@ -507,9 +1116,155 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         Log.e(TAG, "onAudioFocusChange: focuschange: " + focusChange);
     }
 
+    // ====== RECONNECTING =========================================================================
+
+    /*
+     * The SDK always reconnects a room by itself, retryEnabled adds new connects with
+     * backoff after the room was disconnected by an error.
+     */
+    public void configureReconnection(boolean retryEnabled, int maxRetries,
+                                      int initialRetryDelayMs, int maxRetryDelayMs) {
+        roomReconnection.configure(retryEnabled, maxRetries, initialRetryDelayMs, maxRetryDelayMs);
+    }
+
+    private void retryConnect(int retry) {
+        if (accessToken == null) {
+            roomReconnection.onDisconnected();
+            return;
+        }
+        Log.i(TAG, "Retrying connect, retry " + retry);
+        connect();
+    }
+
+    /*
+     * The room was disconnected by an error or a retried connect failed. Either another
+     * connect is scheduled or the room is reported disconnected for good.
+     */
+    private void onRoomLost(Room room, TwilioException e, WritableMap disconnectedEvent) {
+        long retryDelay = roomReconnection.onConnectionLost(e);
+        roomState.setState(roomReconnection.getState());
+        if (retryDelay >= 0) {
+            pushReconnecting(room, e, retryDelay);
+            return;
+        }
+        pushEvent(CustomTwilioVideoView.this, ON_DISCONNECTED, disconnectedEvent);
+        roomName = null;
+        accessToken = null;
+        setAudioFocus(false);
+    }
+
+    /*
+     * retryDelay is -1 while the SDK is reconnecting the room itself.
+     */
+    private void pushReconnecting(Room room, @Nullable TwilioException e, long retryDelay) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("roomName", room.getName());
+        event.putString("roomSid", room.getSid());
+        if (e != null) {
+            event.putString("error", e.getMessage());
+            event.putInt("errorCode", e.getCode());
+        }
+        event.putInt("attempts", roomReconnection.getAttempts());
+        event.putBoolean("retrying", retryDelay >= 0);
+        if (retryDelay >= 0) {
+            event.putDouble("retryDelayMs", retryDelay);
+        }
+        pushEvent(CustomTwilioVideoView.this, ON_RECONNECTING, event);
+    }
+
+    private void pushReconnected(Room room, long downtime, int attempts, boolean retried,
+                                 WritableArray republished) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("roomName", room.getName());
+        event.putString("roomSid", room.getSid());
+        event.putDouble("downtimeMs", downtime);
+        event.putInt("attempts", attempts);
+        event.putBoolean("retried", retried);
+        event.putArray("republished", republished);
+        pushEvent(CustomTwilioVideoView.this, ON_RECONNECTED, event);
+    }
+
+    /*
+     * Publishes the local tracks that were published before the room started reconnecting
+     * and did not survive the reconnect. Returns the kinds that were published again.
+     */
+    private WritableArray republishMissingLocalTracks() {
+        WritableArray republished = new WritableNativeArray();
+        if (localParticipant == null) {
+            return republished;
+        }
+        if (audioPublishedBeforeReconnect && localAudioTrack != null && !isLocalAudioTrackPublished()) {
+            localParticipant.publishTrack(localAudioTrack);
+            republished.pushString("audio");
+        }
+        if (videoPublishedBeforeReconnect && localVideoTrack != null && !isLocalVideoTrackPublished()) {
+            localParticipant.publishTrack(localVideoTrack);
+            republished.pushString("video");
+        }
+        if (dataPublishedBeforeReconnect && localDataTrack != null && !isLocalDataTrackPublished()) {
+            localParticipant.publishTrack(localDataTrack);
+            republished.pushString("data");
+        }
+        return republished;
+    }
+
+    private boolean isLocalAudioTrackPublished() {
+        if (localParticipant == null || localAudioTrack == null) {
+            return false;
+        }
+        for (LocalAudioTrackPublication publication : localParticipant.getLocalAudioTracks()) {
+            if (publication.getLocalAudioTrack() == localAudioTrack) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isLocalDataTrackPublished() {
+        if (localParticipant == null || localDataTrack == null) {
+            return false;
+        }
+        for (LocalDataTrackPublication publication : localParticipant.getLocalDataTracks()) {
+            if (publication.getLocalDataTrack() == localDataTrack) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private WritableMap buildRoomGoneEvent(@Nullable Room room, @Nullable TwilioException e) {
+        WritableMap event = new WritableNativeMap();
+        if (localParticipant != null) {
+            event.putString("participant", localParticipant.getIdentity());
+        }
+        if (room != null) {
+            event.putString("roomName", room.getName());
+            event.putString("roomSid", room.getSid());
+        }
+        if (e != null) {
+            event.putString("error", e.getMessage());
+        }
+        return event;
+    }
+
     // ====== DISCONNECTING ========================================================================
 
     public void disconnect() {
+        if (room == null && roomReconnection.isRetrying()) {
+            // Waiting for the next retry, there is no room left to report the disconnect
+            pushEvent(CustomTwilioVideoView.this, ON_DISCONNECTED, buildRoomGoneEvent(null, null));
+            roomName = null;
+            accessToken = null;
+        }
+        roomReconnection.onDisconnected();
+        roomState.setState(roomReconnection.getState());
+        statsSampler.stop();
+        handler.removeCallbacks(releaseBackgroundVideoRunnable);
+        stopResumeProbe();
+        localVideoSuspended = false;
+        pendingConnect = null;
+        joinStartedAt = 0;
+        firstLocalFrameAt = 0;
         if (room != null) {
             room.disconnect();
         }
@@ -518,31 +1273,275 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             localAudioTrack = null;
         }
         if (localVideoTrack != null) {
-            localVideoTrack.release();
-            localVideoTrack = null;
+            dropLocalVideoTrack();
         }
         setAudioFocus(false);
         if (cameraCapturer != null) {
-            cameraCapturer.stopCapture();
+            // Another session may still be capturing from it
+            if (cameraCapturer != SharedCamera.getCapturer()) {
+                cameraCapturer.stopCapture();
+            }
             cameraCapturer = null;
         }
     }
 
     // ===== SEND STRING ON DATA TRACK ======================================================================
     public void sendString(String message) {
-          if (localDataTrack != null) {
-                localDataTrack.send(message);
-          }
+        sendString(message, null);
+    }
+
+    /*
+     * Messages are queued and sent from the DataTrackSender thread. A queued message with
+     * the same key is replaced, pass a null key to always queue.
+     */
+    public void sendString(String message, @Nullable String key) {
+        if (dataTrackSender != null) {
+            dataTrackSender.send(message, key);
+        }
+    }
+
+    /*
+     * The bridge has no binary type, so the payload arrives base64 encoded and is
+     * decoded once here. The data track itself carries the raw bytes.
+     */
+    public void sendBinary(String base64Message, @Nullable String key) {
+        if (dataTrackSender == null) {
+            return;
+        }
+        byte[] bytes = decodeBase64("sendBinary", base64Message);
+        if (bytes != null) {
+            dataTrackSender.send(ByteBuffer.wrap(bytes), key);
+        }
+    }
+
+    /*
+     * Returns null and reports the error when the message is not valid base64, which
+     * would otherwise throw on the UI thread.
+     */
+    @Nullable
+    private byte[] decodeBase64(String operation, String base64Message) {
+        try {
+            return Base64.decode(base64Message, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            pushDataTrackError(operation, "Message is not valid base64");
+            return null;
+        }
+    }
+
+    /*
+     * Sends a payload of any size as DataTrackChunker frames. The receiving side reassembles
+     * it and delivers it like a regular string or binary (base64) message.
+     */
+    public void sendLarge(String message, boolean isBinary) {
+        if (dataTrackSender == null) {
+            return;
+        }
+        byte[] payload = isBinary
+                ? decodeBase64("sendLarge", message)
+                : message.getBytes(StandardCharsets.UTF_8);
+        if (payload == null) {
+            return;
+        }
+        int transferId = DataTrackChunker.nextTransferId();
+        if (!dataTrackSender.sendAll(DataTrackChunker.fragment(transferId, payload, !isBinary))) {
+            pushDataTrackError("sendLarge",
+                    "Payload of " + payload.length + " bytes does not fit in the data track queue");
+        }
+    }
+
+    /*
+     * Only the remote participants listed in peerIdentities can read compressed messages,
+     * nothing is compressed while anyone else is in the room.
+     */
+    public void configureDataTrackCompression(boolean enabled, int thresholdBytes,
+                                              @Nullable ReadableArray peerIdentities) {
+        if (dataTrackSender == null) {
+            return;
+        }
+        Set<String> identities = new HashSet<>();
+        if (peerIdentities != null) {
+            for (int i = 0; i < peerIdentities.size(); i++) {
+                if (peerIdentities.getType(i) == ReadableType.String) {
+                    identities.add(peerIdentities.getString(i));
+                }
+            }
+        }
+        dataTrackSender.configureCompression(enabled, thresholdBytes, identities);
+    }
+
+    public void benchmarkDataTrackCompression() {
+        if (dataTrackSender != null) {
+            dataTrackSender.benchmarkCompression(results -> {
+                WritableMap event = new WritableNativeMap();
+                event.putArray("compressionBenchmark", results);
+                pushEvent(CustomTwilioVideoView.this, ON_DIAGNOSTICS_RECEIVED, event);
+            });
+        }
+    }
+
+    public void configureDataTrackReassembly(int maxReassemblyBytes, int timeoutMs) {
+        dataTrackReassembler.configure(maxReassemblyBytes, timeoutMs);
+    }
+
+    /*
+     * Inbound messages are delivered in arrays through onDataTrackMessagesReceived at most
+     * maxLatencyMs after they arrive. A maxLatencyMs of 0 delivers every message on its own.
+     */
+    public void configureDataTrackMessageBatching(int maxLatencyMs, int maxBatchSize) {
+        dataTrackMessageBuffer.configure(maxLatencyMs, maxBatchSize);
+    }
+
+    public void configureDataTrackQueue(int maxQueueBytes, DataTrackSender.OverflowPolicy overflowPolicy) {
+        if (dataTrackSender != null) {
+            dataTrackSender.configure(maxQueueBytes, overflowPolicy);
+        }
+    }
+
+    // ===== VIDEO ADAPTATION ======================================================================
+
+    /*
+     * profiles is ordered from lowest to highest quality, null keeps the built-in ladder.
+     */
+    public void configureVideoAdaptation(boolean enabled,
+                                         @Nullable List<VideoAdaptationController.Profile> profiles,
+                                         int initialProfile, int minSwitchIntervalMs) {
+        videoAdaptationController.configure(enabled, profiles, initialProfile, minSwitchIntervalMs);
+        if (room != null && room.getState() == Room.State.CONNECTED) {
+            videoAdaptationController.start(room);
+        }
+    }
+
+    private void onVideoProfileChanged(VideoAdaptationController.Profile profile,
+                                       VideoAdaptationController.Profile previousProfile,
+                                       WritableMap event) {
+        if (!profile.sameCapture(previousProfile)
+                && !recreateLocalVideoTrack(profile, previousProfile)) {
+            event = videoAdaptationController.revert(previousProfile,
+                    "Could not create a local video track for the new profile");
+            profile = previousProfile;
         }
+        if (localParticipant != null) {
+            localParticipant.setEncodingParameters(profile.toEncodingParameters());
+        }
+        pushEvent(CustomTwilioVideoView.this, ON_VIDEO_PROFILE_CHANGED, event);
+    }
+
+    /*
+     * Capture constraints can only be set when a track is created, so a new track is created
+     * from the same capturer and takes the place of the old one, published or not. Returns
+     * false when no track could be created for profile, the track then keeps fallbackProfile.
+     */
+    private boolean recreateLocalVideoTrack(VideoAdaptationController.Profile profile,
+                                            VideoAdaptationController.Profile fallbackProfile) {
+        if (localVideoTrack == null || cameraCapturer == null) {
+            return true;
+        }
+        if (SharedCamera.isShared()) {
+            // Other sessions publish the same track, only the encoding parameters change
+            return true;
+        }
+        stopResumeProbe();
+        boolean wasPublished = isLocalVideoTrackPublished();
+        boolean enabled = localVideoTrack.isEnabled();
+
+        if (wasPublished) {
+            localParticipant.unpublishTrack(localVideoTrack);
+        }
+        session.setLocalVideoTrack(null);
+        localVideoTrack.release();
+
+        localVideoTrack = LocalVideoTrack.create(getContext(), enabled, cameraCapturer,
+                profile.toVideoConstraints());
+        boolean created = localVideoTrack != null;
+        if (!created) {
+            localVideoTrack = LocalVideoTrack.create(getContext(), enabled, cameraCapturer,
+                    fallbackProfile.toVideoConstraints());
+        }
+        SharedCamera.replaceTrack(this, localVideoTrack);
+        if (localVideoTrack == null) {
+            return false;
+        }
+        session.setLocalVideoTrack(localVideoTrack);
+        setThumbnailMirror();
+        if (wasPublished) {
+            localParticipant.publishTrack(localVideoTrack);
+        }
+        return created;
+    }
+
+    // ===== BANDWIDTH PROFILE =====================================================================
+
+    /*
+     * The profile itself applies from the next connect, track priorities follow right away.
+     * The low bandwidth fallback needs network quality reporting.
+     */
+    public void configureBandwidthProfile(boolean enabled, @Nullable String mode,
+                                          @Nullable String trackSwitchOffMode,
+                                          int maxTracks, int maxSubscriptionBitrate,
+                                          @Nullable ReadableMap renderDimensions,
+                                          boolean lowBandwidthFallback,
+                                          int fallbackNetworkQualityLevel) {
+        bandwidthProfileController.configure(enabled, mode, trackSwitchOffMode, maxTracks,
+                maxSubscriptionBitrate, renderDimensions, lowBandwidthFallback,
+                fallbackNetworkQualityLevel);
+        if (room != null && room.getState() == Room.State.CONNECTED) {
+            applyTrackPriorityPolicy();
+        }
+    }
+
+    private void applyTrackPriorityPolicy() {
+        session.getRemoteRendererRegistry().setPriorityPolicy(
+                bandwidthProfileController.isEnabled() ? bandwidthProfileController : null);
+    }
+
+    private void onBandwidthFallbackChanged(boolean active) {
+        Log.i(TAG, active ? "Low bandwidth fallback started" : "Low bandwidth fallback ended");
+        session.getRemoteRendererRegistry().updatePriorities();
+    }
+
+    // ===== VIDEO CODECS ==========================================================================
+
+    /*
+     * codecs in order of preference, null uses the device default. Applies from the next
+     * connect, the codec actually negotiated shows up in the stats.
+     */
+    public void setPreferredVideoCodecs(@Nullable ReadableArray codecs) {
+        videoCodecSelector.setPreferredCodecs(codecs);
+    }
+
+    // ===== DOMINANT SPEAKER ======================================================================
+
+    /*
+     * Server detection applies from the next connect, until then, whenever useServer is
+     * off and while the server has not reported within serverTimeoutMs, the dominant
+     * speaker is derived from the remote audio levels.
+     */
+    public void configureDominantSpeaker(boolean enabled, boolean useServer, int smoothingMs,
+                                         int minHoldMs, int minAudioLevel, int pollIntervalMs,
+                                         int serverTimeoutMs) {
+        dominantSpeakerDetector.configure(enabled, useServer, smoothingMs, minHoldMs,
+                minAudioLevel, pollIntervalMs, serverTimeoutMs);
+    }
+
+    private void pushDominantSpeakerChanged(@Nullable RemoteParticipant participant, String source) {
+        if (room == null) {
+            return;
+        }
+        WritableMap event = new WritableNativeMap();
+        event.putString("roomName", room.getName());
+        event.putString("roomSid", room.getSid());
+        if (participant != null) {
+            event.putMap("participant", buildParticipant(participant));
+        }
+        event.putString("source", source);
+        pushEvent(CustomTwilioVideoView.this, ON_DOMINANT_SPEAKER_CHANGED, event);
+    }
 
     // ===== BUTTON LISTENERS ======================================================================
-    private static void setThumbnailMirror() {
+    private void setThumbnailMirror() {
         if (cameraCapturer != null) {
             CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
-            final boolean isBackCamera = (cameraSource == CameraCapturer.CameraSource.BACK_CAMERA);
-            if (thumbnailVideoView != null && thumbnailVideoView.getVisibility() == View.VISIBLE) {
-                thumbnailVideoView.setMirror(!isBackCamera);
-            }
+            session.setMirror(cameraSource != CameraCapturer.CameraSource.BACK_CAMERA);
         }
     }
 
@@ -691,10 +1690,22 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     }
 
     public void getStats() {
+        getStats(false, StatsEncoder.ALL_FIELDS);
+    }
+
+    /*
+     * compact selects the flat StatsEncoder format, fieldMask limits which fields it serializes.
+     */
+    public void getStats(final boolean compact, final int fieldMask) {
         if (room != null) {
             room.getStats(new StatsListener() {
                 @Override
                 public void onStats(List<StatsReport> statsReports) {
+                    if (compact) {
+                        pushEvent(CustomTwilioVideoView.this, ON_STATS_RECEIVED,
+                                StatsEncoder.encode(statsReports, fieldMask));
+                        return;
+                    }
                     WritableMap event = new WritableNativeMap();
                     for (StatsReport sr : statsReports) {
                         WritableMap connectionStats = new WritableNativeMap();
@@ -719,6 +1730,8 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
                         WritableArray lvs = new WritableNativeArray();
                         for (LocalVideoTrackStats s : sr.getLocalVideoTrackStats()) {
                             lvs.pushMap(convertLocalVideoTrackStats(s));
+                            // The codec negotiated for sending, see setPreferredVideoCodecs
+                            connectionStats.putString("localVideoCodec", s.codec);
                         }
                         connectionStats.putArray("localVideoTrackStats", lvs);
                         event.putMap(sr.getPeerConnectionId(), connectionStats);
@@ -729,6 +1742,56 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         }
     }
 
+    public void startStatsSampling(int intervalMs) {
+        statsSampler.start(room, intervalMs);
+    }
+
+    public void stopStatsSampling() {
+        statsSampler.stop();
+    }
+
+    // ===== ROOM SNAPSHOT =========================================================================
+
+    /*
+     * Participants, publications, subscriptions, enabled flags and network quality levels
+     * in one event, for JS that missed the events that built them.
+     */
+    public void getRoomSnapshot() {
+        if (localParticipant != null) {
+            // Enabling, disabling and unpublishing local tracks have no callbacks
+            roomState.putLocalParticipant(localParticipant);
+        }
+        WritableMap snapshot = roomState.snapshot();
+        snapshot.putString("sessionId", session.id);
+        pushEvent(CustomTwilioVideoView.this, ON_ROOM_SNAPSHOT_RECEIVED, snapshot);
+    }
+
+    // ===== DIAGNOSTICS ===========================================================================
+
+    public void getDiagnostics() {
+        WritableMap event = new WritableNativeMap();
+        event.putMap("events", eventDispatcher.getMetrics());
+        if (dataTrackSender != null) {
+            event.putMap("dataTrackSender", dataTrackSender.getMetrics());
+        }
+        event.putMap("videoAdaptation", videoAdaptationController.getMetrics());
+        event.putMap("bandwidthProfile", bandwidthProfileController.getMetrics());
+        event.putMap("dominantSpeaker", dominantSpeakerDetector.getMetrics());
+        event.putMap("videoCodecs", videoCodecSelector.getMetrics());
+
+        event.putString("sessionId", session.id);
+        event.putArray("renderers", session.getRenderStats());
+
+        WritableMap localMedia = new WritableNativeMap();
+        localMedia.putMap("prewarmedJoinToFirstFrame", prewarmedJoinLatency.toMap());
+        localMedia.putMap("coldJoinToFirstFrame", coldJoinLatency.toMap());
+        localMedia.putMap("resumeToFirstFrame", resumeLatency.toMap());
+        event.putMap("localMedia", localMedia);
+        event.putMap("connectTimeline", connectTimeline.getAggregate());
+        event.putMap("reconnection", roomReconnection.getMetrics());
+        pushEvent(CustomTwilioVideoView.this, ON_DIAGNOSTICS_RECEIVED, event);
+    }
+
     public void disableOpenSLES() {
         WebRtcAudioManager.setBlacklistDeviceForOpenSLESUsage(true);
     }
@@ -744,6 +1807,12 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             public void onConnected(Room room) {
                 localParticipant = room.getLocalParticipant();
                 localParticipant.setListener(localListener());
+                roomState.onConnected(room.getName(), room.getSid(), localParticipant);
+                videoAdaptationController.start(room);
+                applyTrackPriorityPolicy();
+                dominantSpeakerDetector.start(room);
+                connectTimeline.mark(ConnectTimeline.CONNECTED);
+                handler.postDelayed(connectTimelineTimeoutRunnable, CONNECT_TIMELINE_TIMEOUT_MS);
 
                 WritableMap event = new WritableNativeMap();
                 event.putString("roomName", room.getName());
@@ -763,6 +1832,14 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
                 //There is not .publish it's publishTrack
                 localParticipant.publishTrack(localDataTrack);
 
+                int attempts = roomReconnection.getAttempts();
+                long downtime = roomReconnection.onConnected();
+                roomState.setState(roomReconnection.getState());
+                if (downtime >= 0) {
+                    // A retried connect publishes the local tracks with its connect options
+                    pushReconnected(room, downtime, attempts, true, new WritableNativeArray());
+                }
+
                 for (RemoteParticipant participant : participants) {
                     addParticipant(room, participant);
                 }
@@ -770,43 +1847,70 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onConnectFailure(Room room, TwilioException e) {
+                if (roomReconnection.isRetrying()) {
+                    CustomTwilioVideoView.this.room = null;
+                    onRoomLost(room, e, buildRoomGoneEvent(room, e));
+                    return;
+                }
                 WritableMap event = new WritableNativeMap();
                 event.putString("roomName", room.getName());
                 event.putString("roomSid", room.getSid());
                 event.putString("error", e.getMessage());
                 pushEvent(CustomTwilioVideoView.this, ON_CONNECT_FAILURE, event);
+                finishConnectTimeline(ConnectTimeline.OUTCOME_FAILED);
             }
 
             @Override
             public void onReconnecting(@NonNull Room room, @NonNull TwilioException twilioException) {
-
+                if (!RoomReconnection.STATE_RECONNECTING.equals(roomReconnection.getState())) {
+                    audioPublishedBeforeReconnect = isLocalAudioTrackPublished();
+                    videoPublishedBeforeReconnect = isLocalVideoTrackPublished();
+                    dataPublishedBeforeReconnect = isLocalDataTrackPublished();
+                }
+                roomReconnection.onReconnecting();
+                roomState.setState(roomReconnection.getState());
+                pushReconnecting(room, twilioException, -1);
             }
 
             @Override
             public void onReconnected(@NonNull Room room) {
-
+                int attempts = roomReconnection.getAttempts();
+                long downtime = roomReconnection.onReconnected();
+                roomState.setState(roomReconnection.getState());
+                pushReconnected(room, downtime, attempts, false, republishMissingLocalTracks());
+                roomState.putLocalParticipant(localParticipant);
             }
 
             @Override
             public void onDisconnected(Room room, TwilioException e) {
-                WritableMap event = new WritableNativeMap();
-
-                if (localParticipant != null) {
-                  event.putString("participant", localParticipant.getIdentity());
+                WritableMap event = buildRoomGoneEvent(room, e);
+
+                statsSampler.stop();
+                videoAdaptationController.stop();
+                finishConnectTimeline(ConnectTimeline.OUTCOME_DISCONNECTED);
+                networkQualityFilter.reset();
+                dataTrackMessageThreadHandler.post(dataTrackReassembler::clear);
+                session.getRemoteRendererRegistry().clearTracks();
+                session.getRemoteRendererRegistry().setPriorityPolicy(null);
+                bandwidthProfileController.reset();
+                dominantSpeakerDetector.stop();
+                roomState.clear();
+                if (dataTrackSender != null) {
+                    dataTrackSender.clearRemoteParticipants();
                 }
-                event.putString("roomName", room.getName());
-                event.putString("roomSid", room.getSid());
-                if (e != null) {
-                  event.putString("error", e.getMessage());
+                localParticipant = null;
+                CustomTwilioVideoView.this.room = null;
+
+                if (e != null && !disconnectedFromOnDestroy) {
+                    onRoomLost(room, e, event);
+                    return;
                 }
+                roomReconnection.onDisconnected();
+                roomState.setState(roomReconnection.getState());
                 pushEvent(CustomTwilioVideoView.this, ON_DISCONNECTED, event);
-
-                localParticipant = null;
                 roomName = null;
                 accessToken = null;
 
-
-                CustomTwilioVideoView.room = null;
                 // Only reinitialize the UI if disconnect was not called from onDestroy()
                 if (!disconnectedFromOnDestroy) {
                     setAudioFocus(false);
@@ -822,6 +1926,12 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             @Override
             public void onParticipantDisconnected(Room room, RemoteParticipant participant) {
                 removeParticipant(room, participant);
+                dominantSpeakerDetector.onParticipantDisconnected(participant);
+            }
+
+            @Override
+            public void onDominantSpeakerChanged(Room room, @Nullable RemoteParticipant remoteParticipant) {
+                dominantSpeakerDetector.onServerDominantSpeakerChanged(remoteParticipant);
             }
 
             @Override
@@ -838,6 +1948,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
      * Called when participant joins the room
      */
     private void addParticipant(Room room, RemoteParticipant remoteParticipant) {
+        connectTimeline.mark(ConnectTimeline.FIRST_REMOTE_PARTICIPANT);
 
         WritableMap event = new WritableNativeMap();
         event.putString("roomName", room.getName());
@@ -845,12 +1956,28 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         event.putMap("participant", buildParticipant(remoteParticipant));
 
         pushEvent(this, ON_PARTICIPANT_CONNECTED, event);
+        roomState.putRemoteParticipant(remoteParticipant);
+        if (dataTrackSender != null) {
+            dataTrackSender.addRemoteParticipant(remoteParticipant.getSid(),
+                    remoteParticipant.getIdentity());
+        }
 
         /*
          * Start listening for participant media events
          */
         remoteParticipant.setListener(mediaListener());
 
+        /*
+         * Index video tracks that were subscribed before the listener was set.
+         */
+        for (RemoteVideoTrackPublication publication : remoteParticipant.getRemoteVideoTracks()) {
+            if (publication.getRemoteVideoTrack() != null) {
+                session.getRemoteRendererRegistry().onTrackSubscribed(publication.getTrackSid(),
+                        publication.getRemoteVideoTrack());
+                onRemoteTrackSubscribedForTimeline(publication.getRemoteVideoTrack());
+            }
+        }
+
         for (final RemoteDataTrackPublication remoteDataTrackPublication :
               remoteParticipant.getRemoteDataTracks()) {
           /*
@@ -873,6 +2000,14 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         event.putString("roomSid", room.getSid());
         event.putMap("participant", buildParticipant(participant));
         pushEvent(this, ON_PARTICIPANT_DISCONNECTED, event);
+        networkQualityFilter.remove(participant.getSid());
+        roomState.removeParticipant(participant.getSid());
+        if (dataTrackSender != null) {
+            dataTrackSender.removeRemoteParticipant(participant.getSid());
+        }
+        for (RemoteVideoTrackPublication publication : participant.getRemoteVideoTracks()) {
+            session.getRemoteRendererRegistry().onTrackUnsubscribed(publication.getTrackSid());
+        }
         //something about this breaking.
         //participant.setListener(null);
     }
@@ -889,34 +2024,44 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             @Override
             public void onAudioTrackSubscribed(RemoteParticipant participant, RemoteAudioTrackPublication publication, RemoteAudioTrack audioTrack) {
               audioTrack.enablePlayback(enableRemoteAudio);
+              roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO,
+                      RoomStateRegistry.SUBSCRIBED);
+              onRemoteTrackSubscribedForTimeline(null);
               WritableMap event = buildParticipantVideoEvent(participant, publication);
               pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ADDED_AUDIO_TRACK, event);
             }
 
             @Override
             public void onAudioTrackUnsubscribed(RemoteParticipant participant, RemoteAudioTrackPublication publication, RemoteAudioTrack audioTrack) {
+              roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO,
+                      RoomStateRegistry.UNSUBSCRIBED);
               WritableMap event = buildParticipantVideoEvent(participant, publication);
               pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_REMOVED_AUDIO_TRACK, event);
             }
 
             @Override
             public void onAudioTrackSubscriptionFailed(RemoteParticipant participant, RemoteAudioTrackPublication publication, TwilioException twilioException) {
-
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO,
+                        RoomStateRegistry.SUBSCRIPTION_FAILED);
             }
 
             @Override
             public void onAudioTrackPublished(RemoteParticipant participant, RemoteAudioTrackPublication publication) {
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO, null);
             }
 
             @Override
             public void onAudioTrackUnpublished(RemoteParticipant participant, RemoteAudioTrackPublication publication) {
-
+                roomState.removeTrack(participant, publication);
             }
 
 
 
             @Override
             public void onDataTrackSubscribed(RemoteParticipant remoteParticipant, RemoteDataTrackPublication remoteDataTrackPublication, RemoteDataTrack remoteDataTrack) {
+                 roomState.putRemoteTrack(remoteParticipant, remoteDataTrackPublication,
+                         RoomStateRegistry.KIND_DATA, RoomStateRegistry.SUBSCRIBED);
+                 onRemoteTrackSubscribedForTimeline(null);
                  WritableMap event = buildParticipantDataEvent(remoteParticipant);
                  pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ADDED_DATA_TRACK, event);
                  dataTrackMessageThreadHandler.post(() -> addRemoteDataTrack(remoteParticipant, remoteDataTrack));
@@ -924,84 +2069,100 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onDataTrackUnsubscribed(RemoteParticipant remoteParticipant, RemoteDataTrackPublication publication, RemoteDataTrack remoteDataTrack) {
+                 roomState.putRemoteTrack(remoteParticipant, publication, RoomStateRegistry.KIND_DATA,
+                         RoomStateRegistry.UNSUBSCRIBED);
                  WritableMap event = buildParticipantDataEvent(remoteParticipant);
                  pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_REMOVED_DATA_TRACK, event);
             }
 
             @Override
             public void onDataTrackSubscriptionFailed(RemoteParticipant participant, RemoteDataTrackPublication publication, TwilioException twilioException) {
-
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_DATA,
+                        RoomStateRegistry.SUBSCRIPTION_FAILED);
             }
 
             @Override
             public void onDataTrackPublished(RemoteParticipant participant, RemoteDataTrackPublication publication) {
-
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_DATA, null);
             }
 
             @Override
             public void onDataTrackUnpublished(RemoteParticipant participant, RemoteDataTrackPublication publication) {
-
+                roomState.removeTrack(participant, publication);
             }
 
             @Override
             public void onVideoTrackSubscribed(RemoteParticipant participant, RemoteVideoTrackPublication publication, RemoteVideoTrack videoTrack) {
+                session.getRemoteRendererRegistry().onTrackSubscribed(publication.getTrackSid(), videoTrack);
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO,
+                        RoomStateRegistry.SUBSCRIBED);
+                onRemoteTrackSubscribedForTimeline(videoTrack);
                 addParticipantVideo(participant, publication);
             }
 
             @Override
             public void onVideoTrackUnsubscribed(RemoteParticipant participant, RemoteVideoTrackPublication publication, RemoteVideoTrack videoTrack) {
+                session.getRemoteRendererRegistry().onTrackUnsubscribed(publication.getTrackSid());
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO,
+                        RoomStateRegistry.UNSUBSCRIBED);
+                if (videoTrack == remoteFrameProbeTrack) {
+                    // Gone before its first frame, the next subscribed video track is probed
+                    videoTrack.removeRenderer(remoteFrameProbe);
+                    remoteFrameProbe = null;
+                    remoteFrameProbeTrack = null;
+                }
                 removeParticipantVideo(participant, publication);
             }
 
             @Override
             public void onVideoTrackSubscriptionFailed(RemoteParticipant participant, RemoteVideoTrackPublication publication, TwilioException twilioException) {
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO,
+                        RoomStateRegistry.SUBSCRIPTION_FAILED);
             }
 
             @Override
             public void onVideoTrackPublished(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
-
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO, null);
             }
 
             @Override
             public void onVideoTrackUnpublished(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
-
+                roomState.removeTrack(participant, publication);
             }
 
             @Override
             public void onAudioTrackEnabled(RemoteParticipant participant, RemoteAudioTrackPublication publication) {//                Log.i(TAG, "onAudioTrackEnabled");
 //                publication.getRemoteAudioTrack().enablePlayback(false);
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO, null);
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
                 pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_AUDIO_TRACK, event);
             }
 
             @Override
             public void onAudioTrackDisabled(RemoteParticipant participant, RemoteAudioTrackPublication publication) {
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_AUDIO, null);
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
                 pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_AUDIO_TRACK, event);
             }
 
             @Override
             public void onVideoTrackEnabled(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO, null);
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
                 pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ENABLED_VIDEO_TRACK, event);
             }
 
             @Override
             public void onVideoTrackDisabled(RemoteParticipant participant, RemoteVideoTrackPublication publication) {
+                roomState.putRemoteTrack(participant, publication, RoomStateRegistry.KIND_VIDEO, null);
                 WritableMap event = buildParticipantVideoEvent(participant, publication);
                 pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_DISABLED_VIDEO_TRACK, event);
             }
 
             @Override
             public void onNetworkQualityLevelChanged(RemoteParticipant remoteParticipant, NetworkQualityLevel networkQualityLevel) {
-                WritableMap event = new WritableNativeMap();
-                event.putMap("participant", buildParticipant(remoteParticipant));
-                event.putBoolean("isLocalUser", false);
-
-                // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO, so we subtract one to get the correct quality level as an integer
-                event.putInt("quality", networkQualityLevel.ordinal() - 1);
-
-                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event);
+                roomState.setNetworkQualityLevel(remoteParticipant, false, networkQualityLevel);
+                networkQualityFilter.onNetworkQualityLevelChanged(remoteParticipant, false, networkQualityLevel);
             }
         };
     }
@@ -1012,7 +2173,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onAudioTrackPublished(LocalParticipant localParticipant, LocalAudioTrackPublication localAudioTrackPublication) {
-
+                roomState.putLocalParticipant(localParticipant);
             }
 
             @Override
@@ -1022,7 +2183,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onVideoTrackPublished(LocalParticipant localParticipant, LocalVideoTrackPublication localVideoTrackPublication) {
-
+                roomState.putLocalParticipant(localParticipant);
             }
 
             @Override
@@ -1032,7 +2193,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onDataTrackPublished(LocalParticipant localParticipant, LocalDataTrackPublication localDataTrackPublication) {
-
+                roomState.putLocalParticipant(localParticipant);
             }
 
             @Override
@@ -1042,18 +2203,29 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onNetworkQualityLevelChanged(LocalParticipant localParticipant, NetworkQualityLevel networkQualityLevel) {
-                WritableMap event = new WritableNativeMap();
-                event.putMap("participant", buildParticipant(localParticipant));
-                event.putBoolean("isLocalUser", true);
-
-                // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO, so we subtract one to get the correct quality level as an integer
-                event.putInt("quality", networkQualityLevel.ordinal() - 1);
-
-                pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event);
+                roomState.setNetworkQualityLevel(localParticipant, true, networkQualityLevel);
+                networkQualityFilter.onNetworkQualityLevelChanged(localParticipant, true, networkQualityLevel);
+                videoAdaptationController.onLocalNetworkQualityLevelChanged(networkQualityLevel);
+                bandwidthProfileController.onLocalNetworkQualityLevelChanged(networkQualityLevel);
             }
         };
     }
 
+    /*
+     * Called by the NetworkQualityFilter once a participant's level really changed.
+     */
+    private void pushNetworkQualityLevel(Participant participant, boolean isLocalUser, NetworkQualityLevel networkQualityLevel) {
+        WritableMap event = new WritableNativeMap();
+        event.putMap("participant", buildParticipant(participant));
+        event.putBoolean("isLocalUser", isLocalUser);
+
+        // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO, so we subtract one to get the correct quality level as an integer
+        event.putInt("quality", networkQualityLevel.ordinal() - 1);
+
+        pushEvent(CustomTwilioVideoView.this, ON_NETWORK_QUALITY_LEVELS_CHANGED, event,
+                participant.getSid());
+    }
+
     private WritableMap buildParticipant(Participant participant) {
         WritableMap participantMap = new WritableNativeMap();
         participantMap.putString("identity", participant.getIdentity());
@@ -1092,6 +2264,26 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         return event;
     }
 
+    /*
+     * Encodes the message straight from the buffer's backing array when there is one,
+     * so the payload is not copied before it is base64 encoded for the bridge.
+     */
+    private WritableMap buildDataTrackBinaryEvent(ByteBuffer message) {
+        String encoded;
+        if (message.hasArray()) {
+            encoded = Base64.encodeToString(message.array(),
+                    message.arrayOffset() + message.position(), message.remaining(), Base64.NO_WRAP);
+        } else {
+            byte[] bytes = new byte[message.remaining()];
+            message.duplicate().get(bytes);
+            encoded = Base64.encodeToString(bytes, Base64.NO_WRAP);
+        }
+        WritableMap event = new WritableNativeMap();
+        event.putString("message", encoded);
+        event.putInt("byteLength", message.remaining());
+        return event;
+    }
+
     private void addParticipantVideo(Participant participant, RemoteVideoTrackPublication publication) {
         WritableMap event = this.buildParticipantVideoEvent(participant, publication);
         pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ADDED_VIDEO_TRACK, event);
@@ -1104,34 +2296,92 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     // ===== EVENTS TO RN ==========================================================================
 
     void pushEvent(View view, String name, WritableMap data) {
-        eventEmitter.receiveEvent(view.getId(), name, data);
+        eventDispatcher.dispatch(name, data);
     }
 
-    public static void registerPrimaryVideoView(PatchedVideoView v, String trackSid) {
-        if (room != null) {
+    /*
+     * coalesceKey identifies the subject of a coalesced event, e.g. the participant SID.
+     */
+    void pushEvent(View view, String name, WritableMap data, String coalesceKey) {
+        eventDispatcher.dispatch(name, data, coalesceKey);
+    }
 
-            for (RemoteParticipant participant : room.getRemoteParticipants()) {
-                for (RemoteVideoTrackPublication publication : participant.getRemoteVideoTracks()) {
-                    RemoteVideoTrack track = publication.getRemoteVideoTrack();
-                    if (track == null) {
-                        continue;
-                    }
-                    if (publication.getTrackSid().equals(trackSid)) {
-                        track.addRenderer(v);
-                    } else {
-                        track.removeRenderer(v);
-                    }
-                }
+    /*
+     * Called on the data track message thread.
+     */
+    @Nullable
+    private String getDataTrackParticipantSid(RemoteDataTrack remoteDataTrack) {
+        RemoteParticipant participant = dataTrackRemoteParticipantMap.get(remoteDataTrack);
+        return participant != null ? participant.getSid() : null;
+    }
+
+    /*
+     * Called on the data track message thread, buffers the message when batching is enabled.
+     */
+    private void deliverDataTrackMessage(@Nullable String participantSid, WritableMap event, boolean isBinary) {
+        if (dataTrackMessageBuffer.isEnabled()) {
+            if (participantSid != null) {
+                event.putString("participantSid", participantSid);
             }
+            event.putBoolean("isBinary", isBinary);
+            dataTrackMessageBuffer.add(event);
+            return;
         }
+        pushEvent(CustomTwilioVideoView.this,
+                isBinary ? ON_DATATRACK_BINARY_MESSAGE_RECEIVED : ON_DATATRACK_MESSAGE_RECEIVED, event);
     }
 
-    public static void registerThumbnailVideoView(PatchedVideoView v) {
-        thumbnailVideoView = v;
-        if (localVideoTrack != null) {
-            localVideoTrack.addRenderer(v);
-        }
-        setThumbnailMirror();
+    private void pushDataTrackError(String operation, String error) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("operation", operation);
+        event.putString("error", error);
+        pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_ERROR, event);
+    }
+
+    private WritableMap buildDataTrackTransferEvent(String participantSid, int transferId, String state) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("participantSid", participantSid);
+        event.putInt("transferId", transferId);
+        event.putString("state", state);
+        return event;
+    }
+
+    private DataTrackReassembler.Listener dataTrackReassemblerListener() {
+        return new DataTrackReassembler.Listener() {
+            @Override
+            public void onProgress(String participantSid, int transferId, int receivedBytes, int totalBytes) {
+                WritableMap event = buildDataTrackTransferEvent(participantSid, transferId, "receiving");
+                event.putInt("receivedBytes", receivedBytes);
+                event.putInt("totalBytes", totalBytes);
+                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_TRANSFER_PROGRESS, event,
+                        participantSid + ":" + transferId);
+            }
+
+            @Override
+            public void onCompleted(String participantSid, int transferId, byte[] payload, boolean isString) {
+                WritableMap event = buildDataTrackTransferEvent(participantSid, transferId, "completed");
+                event.putInt("receivedBytes", payload.length);
+                event.putInt("totalBytes", payload.length);
+                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_TRANSFER_PROGRESS, event,
+                        participantSid + ":" + transferId);
+
+                if (isString) {
+                    deliverDataTrackMessage(participantSid,
+                            buildDataTrackEvent(new String(payload, StandardCharsets.UTF_8)), false);
+                } else {
+                    deliverDataTrackMessage(participantSid,
+                            buildDataTrackBinaryEvent(ByteBuffer.wrap(payload)), true);
+                }
+            }
+
+            @Override
+            public void onFailed(String participantSid, int transferId, String reason) {
+                WritableMap event = buildDataTrackTransferEvent(participantSid, transferId, "failed");
+                event.putString("error", reason);
+                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_TRANSFER_PROGRESS, event,
+                        participantSid + ":" + transferId);
+            }
+        };
     }
 
     private RemoteDataTrack.Listener remoteDataTrackListener() {
@@ -1139,14 +2389,31 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onMessage(RemoteDataTrack remoteDataTrack, ByteBuffer byteBuffer) {
-
+                String participantSid = getDataTrackParticipantSid(remoteDataTrack);
+                if (DataTrackChunker.isChunk(byteBuffer)) {
+                    dataTrackReassembler.onFrame(participantSid, byteBuffer);
+                    return;
+                }
+                if (DataTrackCompression.isCompressed(byteBuffer)) {
+                    String message = dataTrackCompression.inflate(byteBuffer);
+                    if (message != null) {
+                        deliverDataTrackMessage(participantSid, buildDataTrackEvent(message), false);
+                    } else {
+                        Log.w(TAG, "Dropping malformed compressed data track message");
+                    }
+                    return;
+                }
+                if (DataTrackChunker.isEscapedRaw(byteBuffer)) {
+                    byteBuffer = DataTrackChunker.unescapeRaw(byteBuffer);
+                }
+                deliverDataTrackMessage(participantSid, buildDataTrackBinaryEvent(byteBuffer), true);
             }
 
 
             @Override
             public void onMessage(RemoteDataTrack remoteDataTrack, String message) {
-                WritableMap event = buildDataTrackEvent(message);
-                pushEvent(CustomTwilioVideoView.this, ON_DATATRACK_MESSAGE_RECEIVED, event);
+                deliverDataTrackMessage(getDataTrackParticipantSid(remoteDataTrack),
+                        buildDataTrackEvent(message), false);
             }
         };
     }
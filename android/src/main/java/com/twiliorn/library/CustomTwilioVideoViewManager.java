@@ -15,6 +15,7 @@ import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.annotations.ReactProp;
+import com.twilio.video.NetworkQualityVerbosity;
 
 import java.util.Map;
 
@@ -29,6 +30,10 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_DATA_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_DATA_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_BINARY_MESSAGE_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_MESSAGES_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_TRANSFER_PROGRESS;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DATATRACK_ERROR;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_VIDEO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_AUDIO_TRACK;
@@ -38,7 +43,18 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_D
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ENABLED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_DISABLED_AUDIO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS_SAMPLED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DIAGNOSTICS_RECEIVED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_NETWORK_QUALITY_LEVELS_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_PROFILE_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_MEDIA_PREPARED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_FIRST_FRAME;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_LOCAL_VIDEO_RESUMED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_TIMELINE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SNAPSHOT_RECEIVED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DOMINANT_SPEAKER_CHANGED;
 
 
 public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilioVideoView> {
@@ -58,6 +74,23 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
     private static final int SEND_STRING = 12;
     private static final int PUBLISH_VIDEO = 13;
     private static final int PUBLISH_AUDIO = 14;
+    private static final int START_STATS_SAMPLING = 15;
+    private static final int STOP_STATS_SAMPLING = 16;
+    private static final int GET_DIAGNOSTICS = 17;
+    private static final int SEND_BINARY = 18;
+    private static final int CONFIGURE_DATA_TRACK_QUEUE = 19;
+    private static final int CONFIGURE_DATA_TRACK_MESSAGE_BATCHING = 20;
+    private static final int SEND_LARGE = 21;
+    private static final int CONFIGURE_DATA_TRACK_REASSEMBLY = 22;
+    private static final int CONFIGURE_DATA_TRACK_COMPRESSION = 23;
+    private static final int BENCHMARK_DATA_TRACK_COMPRESSION = 24;
+    private static final int CONFIGURE_VIDEO_ADAPTATION = 25;
+    private static final int PREPARE_LOCAL_MEDIA = 26;
+    private static final int SET_BACKGROUND_VIDEO_POLICY = 27;
+    private static final int CONFIGURE_RECONNECTION = 28;
+    private static final int GET_ROOM_SNAPSHOT = 29;
+    private static final int CONFIGURE_BANDWIDTH_PROFILE = 30;
+    private static final int CONFIGURE_DOMINANT_SPEAKER = 31;
 
     @Override
     public String getName() {
@@ -69,6 +102,15 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
         return new CustomTwilioVideoView(reactContext);
     }
 
+    /*
+     * Previews with the same sessionId render this view's tracks, views without one share
+     * the default session.
+     */
+    @ReactProp(name = "sessionId")
+    public void setSessionId(CustomTwilioVideoView view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
     @Override
     public void receiveCommand(CustomTwilioVideoView view, int commandId, @Nullable ReadableArray args) {
         switch (commandId) {
@@ -79,7 +121,18 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 boolean enableVideo = args.getBoolean(3);
                 boolean enableRemoteAudio = args.getBoolean(4);
                 boolean enableNetworkQualityReporting = args.getBoolean(5);
-                view.connectToRoomWrapper(roomName, accessToken, enableAudio, enableVideo, enableRemoteAudio, enableNetworkQualityReporting);
+                if (args.size() > 9) {
+                    view.setPreferredVideoCodecs(args.isNull(9) ? null : args.getArray(9));
+                }
+                if (args.size() > 8) {
+                    NetworkQualityVerbosity localVerbosity = getNetworkQualityVerbosity(args.getString(6));
+                    NetworkQualityVerbosity remoteVerbosity = getNetworkQualityVerbosity(args.getString(7));
+                    int networkQualityHoldMs = args.getInt(8);
+                    view.connectToRoomWrapper(roomName, accessToken, enableAudio, enableVideo, enableRemoteAudio,
+                            enableNetworkQualityReporting, localVerbosity, remoteVerbosity, networkQualityHoldMs);
+                } else {
+                    view.connectToRoomWrapper(roomName, accessToken, enableAudio, enableVideo, enableRemoteAudio, enableNetworkQualityReporting);
+                }
                 break;
             case DISCONNECT:
                 view.disconnect();
@@ -96,7 +149,13 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 view.toggleAudio(audioEnabled);
                 break;
             case GET_STATS:
-                view.getStats();
+                if (args != null && args.size() > 0) {
+                    boolean compact = args.getBoolean(0);
+                    int fieldMask = StatsEncoder.parseFieldMask(args.size() > 1 ? args.getArray(1) : null);
+                    view.getStats(compact, fieldMask);
+                } else {
+                    view.getStats();
+                }
                 break;
             case DISABLE_OPENSL_ES:
                 view.disableOpenSLES();
@@ -117,7 +176,7 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 view.toggleBluetoothHeadset(headsetEnabled);
                 break;
             case SEND_STRING:
-                view.sendString(args.getString(0));
+                view.sendString(args.getString(0), getOptionalString(args, 1));
                 break;
             case PUBLISH_VIDEO:
                 view.publishLocalVideo(args.getBoolean(0));
@@ -125,9 +184,95 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
             case PUBLISH_AUDIO:
                 view.publishLocalAudio(args.getBoolean(0));
                 break;
+            case START_STATS_SAMPLING:
+                view.startStatsSampling(args.getInt(0));
+                break;
+            case STOP_STATS_SAMPLING:
+                view.stopStatsSampling();
+                break;
+            case GET_DIAGNOSTICS:
+                view.getDiagnostics();
+                break;
+            case SEND_BINARY:
+                view.sendBinary(args.getString(0), getOptionalString(args, 1));
+                break;
+            case CONFIGURE_DATA_TRACK_QUEUE:
+                int maxQueueBytes = args.getInt(0);
+                DataTrackSender.OverflowPolicy overflowPolicy = "reject".equals(args.getString(1))
+                        ? DataTrackSender.OverflowPolicy.REJECT
+                        : DataTrackSender.OverflowPolicy.DROP_OLDEST;
+                view.configureDataTrackQueue(maxQueueBytes, overflowPolicy);
+                break;
+            case CONFIGURE_DATA_TRACK_MESSAGE_BATCHING:
+                view.configureDataTrackMessageBatching(args.getInt(0), args.getInt(1));
+                break;
+            case SEND_LARGE:
+                view.sendLarge(args.getString(0), args.getBoolean(1));
+                break;
+            case CONFIGURE_DATA_TRACK_REASSEMBLY:
+                view.configureDataTrackReassembly(args.getInt(0), args.getInt(1));
+                break;
+            case CONFIGURE_DATA_TRACK_COMPRESSION:
+                view.configureDataTrackCompression(args.getBoolean(0), args.getInt(1),
+                        args.size() > 2 && !args.isNull(2) ? args.getArray(2) : null);
+                break;
+            case BENCHMARK_DATA_TRACK_COMPRESSION:
+                view.benchmarkDataTrackCompression();
+                break;
+            case CONFIGURE_VIDEO_ADAPTATION:
+                ReadableArray profiles = args.isNull(1) ? null : args.getArray(1);
+                view.configureVideoAdaptation(args.getBoolean(0),
+                        VideoAdaptationController.parseProfiles(profiles),
+                        args.getInt(2), args.getInt(3));
+                break;
+            case PREPARE_LOCAL_MEDIA:
+                view.prepareLocalMedia(args.getBoolean(0));
+                break;
+            case SET_BACKGROUND_VIDEO_POLICY:
+                view.setBackgroundVideoPolicy(getBackgroundVideoPolicy(args.getString(0)), args.getInt(1));
+                break;
+            case CONFIGURE_RECONNECTION:
+                view.configureReconnection(args.getBoolean(0), args.getInt(1), args.getInt(2), args.getInt(3));
+                break;
+            case GET_ROOM_SNAPSHOT:
+                view.getRoomSnapshot();
+                break;
+            case CONFIGURE_BANDWIDTH_PROFILE:
+                view.configureBandwidthProfile(args.getBoolean(0), getOptionalString(args, 1),
+                        getOptionalString(args, 2), args.getInt(3), args.getInt(4),
+                        args.isNull(5) ? null : args.getMap(5), args.getBoolean(6), args.getInt(7));
+                break;
+            case CONFIGURE_DOMINANT_SPEAKER:
+                view.configureDominantSpeaker(args.getBoolean(0), args.getBoolean(1), args.getInt(2),
+                        args.getInt(3), args.getInt(4), args.getInt(5), args.getInt(6));
+                break;
         }
     }
 
+    @Nullable
+    private static String getOptionalString(ReadableArray args, int index) {
+        if (args.size() <= index || args.isNull(index)) {
+            return null;
+        }
+        return args.getString(index);
+    }
+
+    private static NetworkQualityVerbosity getNetworkQualityVerbosity(@Nullable String verbosity) {
+        if ("none".equals(verbosity)) {
+            return NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_NONE;
+        }
+        return NetworkQualityVerbosity.NETWORK_QUALITY_VERBOSITY_MINIMAL;
+    }
+
+    private static CustomTwilioVideoView.BackgroundVideoPolicy getBackgroundVideoPolicy(@Nullable String policy) {
+        if ("disable".equals(policy)) {
+            return CustomTwilioVideoView.BackgroundVideoPolicy.DISABLE;
+        } else if ("grace".equals(policy)) {
+            return CustomTwilioVideoView.BackgroundVideoPolicy.GRACE;
+        }
+        return CustomTwilioVideoView.BackgroundVideoPolicy.RELEASE;
+    }
+
     @Override
     @Nullable
     public Map getExportedCustomDirectEventTypeConstants() {
@@ -164,6 +309,31 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 ON_NETWORK_QUALITY_LEVELS_CHANGED, MapBuilder.of("registrationName", ON_NETWORK_QUALITY_LEVELS_CHANGED)
         ));
 
+        map.putAll(MapBuilder.of(
+                ON_STATS_SAMPLED, MapBuilder.of("registrationName", ON_STATS_SAMPLED),
+                ON_DIAGNOSTICS_RECEIVED, MapBuilder.of("registrationName", ON_DIAGNOSTICS_RECEIVED),
+                EventDispatcher.ON_EVENT_BATCH, MapBuilder.of("registrationName", EventDispatcher.ON_EVENT_BATCH),
+                ON_DATATRACK_BINARY_MESSAGE_RECEIVED, MapBuilder.of("registrationName", ON_DATATRACK_BINARY_MESSAGE_RECEIVED),
+                ON_DATATRACK_MESSAGES_RECEIVED, MapBuilder.of("registrationName", ON_DATATRACK_MESSAGES_RECEIVED),
+                ON_DATATRACK_TRANSFER_PROGRESS, MapBuilder.of("registrationName", ON_DATATRACK_TRANSFER_PROGRESS),
+                ON_VIDEO_PROFILE_CHANGED, MapBuilder.of("registrationName", ON_VIDEO_PROFILE_CHANGED)
+        ));
+
+        map.putAll(MapBuilder.of(
+                ON_LOCAL_MEDIA_PREPARED, MapBuilder.of("registrationName", ON_LOCAL_MEDIA_PREPARED),
+                ON_LOCAL_VIDEO_FIRST_FRAME, MapBuilder.of("registrationName", ON_LOCAL_VIDEO_FIRST_FRAME),
+                ON_LOCAL_VIDEO_RESUMED, MapBuilder.of("registrationName", ON_LOCAL_VIDEO_RESUMED),
+                ON_CONNECT_TIMELINE, MapBuilder.of("registrationName", ON_CONNECT_TIMELINE),
+                ON_RECONNECTING, MapBuilder.of("registrationName", ON_RECONNECTING),
+                ON_RECONNECTED, MapBuilder.of("registrationName", ON_RECONNECTED),
+                ON_ROOM_SNAPSHOT_RECEIVED, MapBuilder.of("registrationName", ON_ROOM_SNAPSHOT_RECEIVED)
+        ));
+
+        map.putAll(MapBuilder.of(
+                ON_DOMINANT_SPEAKER_CHANGED, MapBuilder.of("registrationName", ON_DOMINANT_SPEAKER_CHANGED),
+                ON_DATATRACK_ERROR, MapBuilder.of("registrationName", ON_DATATRACK_ERROR)
+        ));
+
         return map;
     }
 
@@ -181,6 +351,23 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
                 .put("toggleRemoteSound", TOGGLE_REMOTE_SOUND)
                 .put("toggleBluetoothHeadset", TOGGLE_BLUETOOTH_HEADSET)
                 .put("sendString", SEND_STRING)
+                .put("startStatsSampling", START_STATS_SAMPLING)
+                .put("stopStatsSampling", STOP_STATS_SAMPLING)
+                .put("getDiagnostics", GET_DIAGNOSTICS)
+                .put("sendBinary", SEND_BINARY)
+                .put("configureDataTrackQueue", CONFIGURE_DATA_TRACK_QUEUE)
+                .put("configureDataTrackMessageBatching", CONFIGURE_DATA_TRACK_MESSAGE_BATCHING)
+                .put("sendLarge", SEND_LARGE)
+                .put("configureDataTrackReassembly", CONFIGURE_DATA_TRACK_REASSEMBLY)
+                .put("configureDataTrackCompression", CONFIGURE_DATA_TRACK_COMPRESSION)
+                .put("benchmarkDataTrackCompression", BENCHMARK_DATA_TRACK_COMPRESSION)
+                .put("configureVideoAdaptation", CONFIGURE_VIDEO_ADAPTATION)
+                .put("prepareLocalMedia", PREPARE_LOCAL_MEDIA)
+                .put("setBackgroundVideoPolicy", SET_BACKGROUND_VIDEO_POLICY)
+                .put("configureReconnection", CONFIGURE_RECONNECTION)
+                .put("getRoomSnapshot", GET_ROOM_SNAPSHOT)
+                .put("configureBandwidthProfile", CONFIGURE_BANDWIDTH_PROFILE)
+                .put("configureDominantSpeaker", CONFIGURE_DOMINANT_SPEAKER)
                 .build();
     }
 }
@@ -0,0 +1,113 @@
+/**
+ * Splits payloads that are too large for a single data track message into
+ * binary chunk frames.
+ * <p>
+ * Every frame starts with a 20 byte header: a 2 byte magic, the frame type,
+ * flags, the transfer id, the chunk index, the chunk size used by the sender and
+ * the total payload length, all big endian. The receiving side feeds frames to a
+ * DataTrackReassembler.
+ * <p>
+ * Raw binary messages that happen to start with the magic are escaped with a 3
+ * byte header (the magic and TYPE_RAW), so a binary message starting with the
+ * magic is always one of these frames.
+ */
+package com.twiliorn.library;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DataTrackChunker {
+    static final byte MAGIC_0 = (byte) 0xA5;
+    static final byte MAGIC_1 = (byte) 0x7C;
+    static final byte TYPE_RAW = 0;
+    static final byte TYPE_CHUNK = 1;
+
+    // The payload is UTF-8 text and is delivered as a string message
+    static final byte FLAG_STRING = 1;
+
+    static final int HEADER_SIZE = 20;
+    static final int RAW_HEADER_SIZE = 3;
+    // Data track messages up to 16 KiB are safe across all Twilio SDKs
+    static final int MAX_MESSAGE_SIZE = 16 * 1024;
+    static final int CHUNK_SIZE = MAX_MESSAGE_SIZE - HEADER_SIZE;
+
+    private static final AtomicInteger nextTransferId =
+            new AtomicInteger((int) (Math.random() * Integer.MAX_VALUE));
+
+    private DataTrackChunker() {
+    }
+
+    static int nextTransferId() {
+        return nextTransferId.getAndIncrement();
+    }
+
+    static List<ByteBuffer> fragment(int transferId, byte[] payload, boolean isString) {
+        List<ByteBuffer> frames = new ArrayList<>();
+        int index = 0;
+        for (int offset = 0; offset < payload.length || index == 0; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, payload.length - offset);
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + length);
+            frame.put(MAGIC_0);
+            frame.put(MAGIC_1);
+            frame.put(TYPE_CHUNK);
+            frame.put(isString ? FLAG_STRING : 0);
+            frame.putInt(transferId);
+            frame.putInt(index++);
+            frame.putInt(CHUNK_SIZE);
+            frame.putInt(payload.length);
+            frame.put(payload, offset, length);
+            frame.flip();
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    static boolean isChunk(ByteBuffer message) {
+        int position = message.position();
+        return message.remaining() >= HEADER_SIZE
+                && message.get(position) == MAGIC_0
+                && message.get(position + 1) == MAGIC_1
+                && message.get(position + 2) == TYPE_CHUNK;
+    }
+
+    /*
+     * Returns the message to send for a raw binary payload: the payload itself unless it
+     * starts with the magic, in which case it is prefixed with a TYPE_RAW header.
+     */
+    static ByteBuffer escapeRaw(ByteBuffer payload) {
+        if (!startsWithMagic(payload)) {
+            return payload;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(RAW_HEADER_SIZE + payload.remaining());
+        frame.put(MAGIC_0);
+        frame.put(MAGIC_1);
+        frame.put(TYPE_RAW);
+        frame.put(payload.duplicate());
+        frame.flip();
+        return frame;
+    }
+
+    static boolean isEscapedRaw(ByteBuffer message) {
+        return message.remaining() >= RAW_HEADER_SIZE
+                && startsWithMagic(message)
+                && message.get(message.position() + 2) == TYPE_RAW;
+    }
+
+    /*
+     * Returns the original payload of a TYPE_RAW frame without copying it.
+     */
+    static ByteBuffer unescapeRaw(ByteBuffer message) {
+        ByteBuffer payload = message.duplicate();
+        payload.position(payload.position() + RAW_HEADER_SIZE);
+        return payload.slice();
+    }
+
+    private static boolean startsWithMagic(ByteBuffer message) {
+        int position = message.position();
+        return message.remaining() >= 2
+                && message.get(position) == MAGIC_0
+                && message.get(position + 1) == MAGIC_1;
+    }
+}
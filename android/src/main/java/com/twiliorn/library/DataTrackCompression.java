@@ -0,0 +1,184 @@
+/**
+ * Raw deflate compression for data track string messages.
+ * <p>
+ * A compressed message is sent as a binary frame with an 8 byte header: the
+ * DataTrackChunker magic, the frame type, flags and the uncompressed length, big
+ * endian. Each instance keeps its own Deflater and Inflater and must only be used
+ * from one thread.
+ * <p>
+ * iOS and peers on versions without compression can not read these frames, so the
+ * sender only compresses when every remote participant opted in, see
+ * DataTrackSender.configureCompression.
+ */
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+class DataTrackCompression {
+    static final byte TYPE_DEFLATE = 2;
+    static final int HEADER_SIZE = 8;
+    static final int DEFAULT_THRESHOLD_BYTES = 512;
+    // Refuse to inflate anything claiming to be larger than this
+    private static final int MAX_INFLATED_SIZE = 16 * 1024 * 1024;
+
+    private static final int[] BENCHMARK_SIZES = {256, 1024, 4096, 16 * 1024, 64 * 1024};
+    private static final int BENCHMARK_ITERATIONS = 20;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    private final Inflater inflater = new Inflater(true);
+    private byte[] scratch = new byte[DataTrackChunker.MAX_MESSAGE_SIZE];
+
+    static boolean isCompressed(ByteBuffer message) {
+        int position = message.position();
+        return message.remaining() >= HEADER_SIZE
+                && message.get(position) == DataTrackChunker.MAGIC_0
+                && message.get(position + 1) == DataTrackChunker.MAGIC_1
+                && message.get(position + 2) == TYPE_DEFLATE;
+    }
+
+    /*
+     * Returns the compressed frame, or null when compression does not make the message smaller.
+     */
+    ByteBuffer deflate(String message) {
+        byte[] input = message.getBytes(StandardCharsets.UTF_8);
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+
+        if (scratch.length < input.length + HEADER_SIZE) {
+            scratch = new byte[input.length + HEADER_SIZE];
+        }
+        int compressedLength = 0;
+        // Only worth sending when the frame ends up smaller than the input
+        int limit = input.length - HEADER_SIZE;
+        while (!deflater.finished() && compressedLength < limit) {
+            int count = deflater.deflate(scratch, HEADER_SIZE + compressedLength,
+                    limit - compressedLength);
+            if (count == 0) {
+                break;
+            }
+            compressedLength += count;
+        }
+        if (!deflater.finished()) {
+            return null;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + compressedLength);
+        frame.put(DataTrackChunker.MAGIC_0);
+        frame.put(DataTrackChunker.MAGIC_1);
+        frame.put(TYPE_DEFLATE);
+        frame.put(DataTrackChunker.FLAG_STRING);
+        frame.putInt(input.length);
+        frame.put(scratch, HEADER_SIZE, compressedLength);
+        frame.flip();
+        return frame;
+    }
+
+    /*
+     * Returns the decompressed message, or null when the frame is malformed.
+     */
+    String inflate(ByteBuffer frame) {
+        ByteBuffer body = frame.duplicate();
+        body.position(body.position() + 4);
+        int length = body.getInt();
+        if (length < 0 || length > MAX_INFLATED_SIZE) {
+            return null;
+        }
+
+        byte[] input;
+        int offset;
+        int inputLength = body.remaining();
+        if (body.hasArray()) {
+            input = body.array();
+            offset = body.arrayOffset() + body.position();
+        } else {
+            input = new byte[inputLength];
+            body.get(input);
+            offset = 0;
+        }
+
+        byte[] output = new byte[length];
+        inflater.reset();
+        inflater.setInput(input, offset, inputLength);
+        try {
+            int inflated = 0;
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(output, inflated, length - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    return null;
+                }
+                inflated += count;
+            }
+            if (inflated != length) {
+                return null;
+            }
+        } catch (DataFormatException e) {
+            return null;
+        }
+        return new String(output, StandardCharsets.UTF_8);
+    }
+
+    /*
+     * Frees the native zlib memory, the instance can not be used afterwards.
+     */
+    void release() {
+        deflater.end();
+        inflater.end();
+    }
+
+    /*
+     * Measures deflate and inflate time of JSON-like messages of increasing size on the
+     * calling thread.
+     */
+    WritableArray benchmark() {
+        WritableArray results = new WritableNativeArray();
+        for (int size : BENCHMARK_SIZES) {
+            String message = buildBenchmarkMessage(size);
+            ByteBuffer frame = deflate(message);
+            long deflateNanos = 0;
+            long inflateNanos = 0;
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                frame = deflate(message);
+                long deflated = System.nanoTime();
+                if (frame != null) {
+                    inflate(frame);
+                }
+                deflateNanos += deflated - start;
+                inflateNanos += System.nanoTime() - deflated;
+            }
+
+            WritableMap result = new WritableNativeMap();
+            result.putInt("size", size);
+            result.putInt("compressedSize", frame != null ? frame.remaining() : size);
+            result.putDouble("deflateMicros", deflateNanos / 1000.0 / BENCHMARK_ITERATIONS);
+            result.putDouble("inflateMicros", inflateNanos / 1000.0 / BENCHMARK_ITERATIONS);
+            results.pushMap(result);
+        }
+        return results;
+    }
+
+    private static String buildBenchmarkMessage(int size) {
+        StringBuilder builder = new StringBuilder(size + 64);
+        builder.append('[');
+        for (int i = 0; builder.length() < size - 1; i++) {
+            builder.append("{\"id\":").append(i)
+                    .append(",\"x\":").append((i * 37) % 1000)
+                    .append(",\"y\":").append((i * 53) % 1000)
+                    .append(",\"type\":\"stroke\"},");
+        }
+        char[] chars = Arrays.copyOf(builder.toString().toCharArray(), size);
+        chars[size - 1] = ']';
+        return new String(chars);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Collects inbound data track messages and hands them over in arrays, either
+ * once the oldest buffered message has waited maxLatencyMs or once maxBatchSize
+ * messages are buffered, whichever comes first.
+ * <p>
+ * All methods except configure must be called on the data track message thread
+ * backing the handler, which is also where batches are delivered.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+
+class DataTrackMessageBuffer {
+
+    interface Listener {
+        void onMessages(WritableArray messages);
+    }
+
+    private final Handler dataTrackMessageThreadHandler;
+    private final Listener listener;
+
+    // Only touched on the data track message thread
+    private int maxLatencyMs = 0;
+    private int maxBatchSize = 0;
+    private WritableArray pending = new WritableNativeArray();
+    private int pendingCount = 0;
+
+    DataTrackMessageBuffer(Handler dataTrackMessageThreadHandler, Listener listener) {
+        this.dataTrackMessageThreadHandler = dataTrackMessageThreadHandler;
+        this.listener = listener;
+    }
+
+    /*
+     * A maxLatencyMs of 0 disables buffering. Safe to call from any thread.
+     */
+    void configure(final int maxLatencyMs, final int maxBatchSize) {
+        dataTrackMessageThreadHandler.post(() -> {
+            flush();
+            DataTrackMessageBuffer.this.maxLatencyMs = Math.max(0, maxLatencyMs);
+            DataTrackMessageBuffer.this.maxBatchSize = Math.max(1, maxBatchSize);
+        });
+    }
+
+    boolean isEnabled() {
+        return maxLatencyMs > 0;
+    }
+
+    void add(WritableMap message) {
+        if (pendingCount == 0) {
+            dataTrackMessageThreadHandler.postDelayed(flushRunnable, maxLatencyMs);
+        }
+        pending.pushMap(message);
+        pendingCount++;
+        if (pendingCount >= maxBatchSize) {
+            flush();
+        }
+    }
+
+    void flush() {
+        dataTrackMessageThreadHandler.removeCallbacks(flushRunnable);
+        if (pendingCount == 0) {
+            return;
+        }
+        WritableArray messages = pending;
+        pending = new WritableNativeArray();
+        pendingCount = 0;
+        listener.onMessages(messages);
+    }
+
+    private final Runnable flushRunnable = this::flush;
+}
@@ -0,0 +1,191 @@
+/**
+ * Reassembles payloads sent as DataTrackChunker frames. Chunks are copied into a
+ * buffer sized for the whole payload as they arrive, the memory held by all
+ * transfers in progress is bounded, and transfers that stop receiving chunks are
+ * evicted after a timeout.
+ * <p>
+ * Must be used on the data track message thread backing the handler, which is
+ * also where the listener is called.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class DataTrackReassembler {
+    static final int DEFAULT_MAX_REASSEMBLY_BYTES = 8 * 1024 * 1024;
+    static final int DEFAULT_TIMEOUT_MS = 10000;
+    // Rejected transfers remembered so their remaining chunks fail silently
+    private static final int MAX_REJECTED_TRANSFERS = 64;
+
+    interface Listener {
+        void onProgress(String senderId, int transferId, int receivedBytes, int totalBytes);
+
+        void onCompleted(String senderId, int transferId, byte[] payload, boolean isString);
+
+        void onFailed(String senderId, int transferId, String reason);
+    }
+
+    private static class Transfer {
+        final String senderId;
+        final int transferId;
+        final byte[] payload;
+        final int chunkSize;
+        final boolean isString;
+        final BitSet receivedChunks = new BitSet();
+        int receivedBytes;
+        long lastChunkAt;
+
+        Transfer(String senderId, int transferId, int totalBytes, int chunkSize, boolean isString) {
+            this.senderId = senderId;
+            this.transferId = transferId;
+            this.payload = new byte[totalBytes];
+            this.chunkSize = chunkSize;
+            this.isString = isString;
+        }
+    }
+
+    private final Handler dataTrackMessageThreadHandler;
+    private final Listener listener;
+    private final Map<String, Transfer> transfers = new HashMap<>();
+    private final Map<String, Boolean> rejectedTransfers = new LinkedHashMap<String, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_REJECTED_TRANSFERS;
+        }
+    };
+    private int maxReassemblyBytes = DEFAULT_MAX_REASSEMBLY_BYTES;
+    private int timeoutMs = DEFAULT_TIMEOUT_MS;
+    private long reassemblyBytes;
+
+    DataTrackReassembler(Handler dataTrackMessageThreadHandler, Listener listener) {
+        this.dataTrackMessageThreadHandler = dataTrackMessageThreadHandler;
+        this.listener = listener;
+    }
+
+    /*
+     * Safe to call from any thread.
+     */
+    void configure(final int maxReassemblyBytes, final int timeoutMs) {
+        dataTrackMessageThreadHandler.post(() -> {
+            DataTrackReassembler.this.maxReassemblyBytes = maxReassemblyBytes;
+            DataTrackReassembler.this.timeoutMs = timeoutMs;
+        });
+    }
+
+    /*
+     * senderId identifies the remote participant the frame came from, transfer ids are
+     * only unique per sender.
+     */
+    void onFrame(String senderId, ByteBuffer frame) {
+        ByteBuffer header = frame.duplicate();
+        header.position(header.position() + 3);
+        boolean isString = (header.get() & DataTrackChunker.FLAG_STRING) != 0;
+        int transferId = header.getInt();
+        int index = header.getInt();
+        int chunkSize = header.getInt();
+        int totalBytes = header.getInt();
+
+        String key = senderId + ":" + transferId;
+        if (rejectedTransfers.containsKey(key)) {
+            return;
+        }
+
+        // Every header field comes from the remote peer, so the bounds are checked in long
+        long offset = (long) index * chunkSize;
+        int length = header.remaining();
+        if (index < 0 || chunkSize <= 0 || totalBytes < 0 || offset >= Math.max(totalBytes, 1)
+                || length != Math.min(chunkSize, totalBytes - offset)) {
+            reject(key, senderId, transferId, "Malformed chunk");
+            return;
+        }
+
+        Transfer transfer = transfers.get(key);
+        if (transfer == null) {
+            evictExpired();
+            if (totalBytes > maxReassemblyBytes
+                    || reassemblyBytes + totalBytes > maxReassemblyBytes) {
+                reject(key, senderId, transferId, "Reassembly memory limit exceeded");
+                return;
+            }
+            transfer = new Transfer(senderId, transferId, totalBytes, chunkSize, isString);
+            transfers.put(key, transfer);
+            reassemblyBytes += totalBytes;
+            if (transfers.size() == 1) {
+                dataTrackMessageThreadHandler.removeCallbacks(evictionRunnable);
+                dataTrackMessageThreadHandler.postDelayed(evictionRunnable, timeoutMs);
+            }
+        } else if (transfer.payload.length != totalBytes || transfer.chunkSize != chunkSize) {
+            reject(key, senderId, transferId, "Malformed chunk");
+            return;
+        }
+
+        transfer.lastChunkAt = SystemClock.uptimeMillis();
+        if (!transfer.receivedChunks.get(index)) {
+            transfer.receivedChunks.set(index);
+            header.get(transfer.payload, (int) offset, length);
+            transfer.receivedBytes += length;
+        }
+
+        if (transfer.receivedBytes >= totalBytes) {
+            remove(key);
+            listener.onCompleted(senderId, transferId, transfer.payload, transfer.isString);
+        } else {
+            listener.onProgress(senderId, transferId, transfer.receivedBytes, totalBytes);
+        }
+    }
+
+    void clear() {
+        dataTrackMessageThreadHandler.removeCallbacks(evictionRunnable);
+        transfers.clear();
+        rejectedTransfers.clear();
+        reassemblyBytes = 0;
+    }
+
+    private void reject(String key, String senderId, int transferId, String reason) {
+        remove(key);
+        rejectedTransfers.put(key, true);
+        listener.onFailed(senderId, transferId, reason);
+    }
+
+    private void remove(String key) {
+        Transfer transfer = transfers.remove(key);
+        if (transfer != null) {
+            reassemblyBytes -= transfer.payload.length;
+        }
+        if (transfers.isEmpty()) {
+            dataTrackMessageThreadHandler.removeCallbacks(evictionRunnable);
+        }
+    }
+
+    private void evictExpired() {
+        long now = SystemClock.uptimeMillis();
+        Iterator<Map.Entry<String, Transfer>> iterator = transfers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Transfer transfer = iterator.next().getValue();
+            if (now - transfer.lastChunkAt >= timeoutMs) {
+                iterator.remove();
+                reassemblyBytes -= transfer.payload.length;
+                rejectedTransfers.put(transfer.senderId + ":" + transfer.transferId, true);
+                listener.onFailed(transfer.senderId, transfer.transferId, "Timed out");
+            }
+        }
+    }
+
+    private final Runnable evictionRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evictExpired();
+            if (!transfers.isEmpty()) {
+                dataTrackMessageThreadHandler.postDelayed(this, timeoutMs);
+            }
+        }
+    };
+}
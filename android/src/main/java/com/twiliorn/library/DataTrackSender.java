@@ -0,0 +1,342 @@
+/**
+ * Outbound queue for the local data track. Messages are sent from a dedicated
+ * thread so UI commands never block on the data track, the queue is bounded in
+ * bytes, and messages sent with a key replace the queued message with the same
+ * key (latest value wins) instead of queueing stale updates.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.LocalDataTrack;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class DataTrackSender {
+    private static final String DATA_TRACK_SENDER_THREAD_NAME = "DataTrackSender";
+    static final int DEFAULT_MAX_QUEUE_BYTES = 1024 * 1024;
+
+    enum OverflowPolicy {
+        // Drop queued messages, oldest first, until the new one fits
+        DROP_OLDEST,
+        // Drop the new message
+        REJECT
+    }
+
+    private static class Message {
+        final String key;
+        // Messages queued together by sendAll share a non-zero batch and are dropped together
+        final long batch;
+        String text;
+        ByteBuffer binary;
+        int size;
+
+        Message(String key, long batch, String text, ByteBuffer binary) {
+            this.key = key;
+            this.batch = batch;
+            set(text, binary);
+        }
+
+        void set(String text, ByteBuffer binary) {
+            this.text = text;
+            this.binary = binary;
+            this.size = sizeOf(text, binary);
+        }
+
+        static int sizeOf(String text, ByteBuffer binary) {
+            // Strings are accounted by their UTF-8 length, the limit is in bytes
+            return text != null ? utf8Length(text) : binary.remaining();
+        }
+
+        /*
+         * The UTF-8 length of text without encoding it, an unpaired surrogate counts as
+         * three bytes.
+         */
+        static int utf8Length(String text) {
+            int length = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    length += 1;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    length += 4;
+                    i++;
+                } else {
+                    length += 3;
+                }
+            }
+            return length;
+        }
+    }
+
+    private final LocalDataTrack localDataTrack;
+    private final HandlerThread senderThread = new HandlerThread(DATA_TRACK_SENDER_THREAD_NAME);
+    private final Handler senderThreadHandler;
+
+    // Guarded by this
+    private final ArrayDeque<Message> queue = new ArrayDeque<>();
+    private final Map<String, Message> queuedByKey = new HashMap<>();
+    private int maxQueueBytes = DEFAULT_MAX_QUEUE_BYTES;
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private int queuedBytes;
+    private boolean drainScheduled;
+    private boolean released;
+    private long lastBatch;
+    private boolean compressionEnabled;
+    private int compressionThresholdBytes = DataTrackCompression.DEFAULT_THRESHOLD_BYTES;
+    // Identities of the remote participants that can inflate compressed messages
+    private Set<String> compressionPeerIdentities = Collections.emptySet();
+    // Identities of the remote participants in the room, by participant SID
+    private final Map<String, String> remoteIdentities = new HashMap<>();
+
+    // Only used on the sender thread
+    private final DataTrackCompression compression = new DataTrackCompression();
+
+    // Metrics, guarded by this
+    private long queuedCount;
+    private long sentCount;
+    private long droppedCount;
+    private long coalescedCount;
+
+    DataTrackSender(LocalDataTrack localDataTrack) {
+        this.localDataTrack = localDataTrack;
+        senderThread.start();
+        senderThreadHandler = new Handler(senderThread.getLooper());
+    }
+
+    synchronized void configure(int maxQueueBytes, OverflowPolicy overflowPolicy) {
+        this.maxQueueBytes = maxQueueBytes;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /*
+     * String messages of at least thresholdBytes chars are deflated on the sender thread.
+     * Data track messages go to every participant, so messages are only compressed while
+     * all remote participants in the room are among peerIdentities.
+     */
+    synchronized void configureCompression(boolean enabled, int thresholdBytes,
+                                           Set<String> peerIdentities) {
+        this.compressionEnabled = enabled;
+        this.compressionThresholdBytes = thresholdBytes;
+        this.compressionPeerIdentities = peerIdentities;
+    }
+
+    synchronized void addRemoteParticipant(String sid, String identity) {
+        remoteIdentities.put(sid, identity);
+    }
+
+    synchronized void removeRemoteParticipant(String sid) {
+        remoteIdentities.remove(sid);
+    }
+
+    synchronized void clearRemoteParticipants() {
+        remoteIdentities.clear();
+    }
+
+    private boolean canCompress() {
+        return compressionEnabled && !remoteIdentities.isEmpty()
+                && compressionPeerIdentities.containsAll(remoteIdentities.values());
+    }
+
+    /*
+     * Runs the compression benchmark on the sender thread, where compression happens.
+     */
+    void benchmarkCompression(final BenchmarkListener listener) {
+        senderThreadHandler.post(() -> listener.onResults(compression.benchmark()));
+    }
+
+    interface BenchmarkListener {
+        void onResults(WritableArray results);
+    }
+
+    /*
+     * Returns false when the message was dropped because the queue is full.
+     */
+    boolean send(String message, String key) {
+        return enqueue(message, null, key);
+    }
+
+    /*
+     * A message that starts with the DataTrackChunker magic is escaped so the receiving
+     * side cannot mistake it for a chunk or compressed frame.
+     */
+    boolean send(ByteBuffer message, String key) {
+        return enqueue(null, DataTrackChunker.escapeRaw(message), key);
+    }
+
+    /*
+     * Queues all messages or none of them, used for the chunks of one payload so the
+     * overflow policy never drops part of it. DROP_OLDEST later evicts them together too.
+     * Returns false when nothing was queued because the messages do not fit.
+     */
+    synchronized boolean sendAll(List<ByteBuffer> messages) {
+        if (released) {
+            return false;
+        }
+        long size = 0;
+        for (ByteBuffer message : messages) {
+            size += message.remaining();
+        }
+        if (size > maxQueueBytes || !makeRoom((int) size, null)) {
+            droppedCount += messages.size();
+            return false;
+        }
+        long batch = ++lastBatch;
+        for (ByteBuffer message : messages) {
+            add(new Message(null, batch, null, message));
+        }
+        return true;
+    }
+
+    private synchronized boolean enqueue(String text, ByteBuffer binary, String key) {
+        if (released) {
+            return false;
+        }
+
+        Message queued = key != null ? queuedByKey.get(key) : null;
+        if (queued != null) {
+            // Replace the stale value in place, it keeps its position in the queue. A larger
+            // value needs room for the difference, when there is none the stale value stays.
+            int size = Message.sizeOf(text, binary);
+            int growth = size - queued.size;
+            if (size > maxQueueBytes || (growth > 0 && !makeRoom(growth, queued))) {
+                droppedCount++;
+                return false;
+            }
+            queuedBytes += growth;
+            queued.set(text, binary);
+            coalescedCount++;
+            return true;
+        }
+
+        Message message = new Message(key, 0, text, binary);
+        if (!makeRoom(message.size, null)) {
+            droppedCount++;
+            return false;
+        }
+        add(message);
+        return true;
+    }
+
+    private void add(Message message) {
+        queue.add(message);
+        if (message.key != null) {
+            queuedByKey.put(message.key, message);
+        }
+        queuedBytes += message.size;
+        queuedCount++;
+
+        if (!drainScheduled) {
+            drainScheduled = true;
+            senderThreadHandler.post(drainRunnable);
+        }
+    }
+
+    /*
+     * Makes room for size more bytes under the overflow policy, never dropping keep.
+     */
+    private boolean makeRoom(int size, Message keep) {
+        if (size > maxQueueBytes) {
+            return false;
+        }
+        if (queuedBytes + size <= maxQueueBytes) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.REJECT) {
+            return false;
+        }
+        // The chunks of a payload are queued together, the rest of a chunked payload is
+        // useless without its dropped part so the whole batch goes
+        long droppedBatch = 0;
+        Iterator<Message> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Message message = iterator.next();
+            boolean restOfBatch = droppedBatch != 0 && message.batch == droppedBatch;
+            if (!restOfBatch && queuedBytes + size <= maxQueueBytes) {
+                break;
+            }
+            if (message == keep) {
+                continue;
+            }
+            iterator.remove();
+            remove(message);
+            droppedCount++;
+            droppedBatch = message.batch;
+        }
+        return queuedBytes + size <= maxQueueBytes;
+    }
+
+    private void remove(Message message) {
+        queuedBytes -= message.size;
+        if (message.key != null) {
+            queuedByKey.remove(message.key);
+        }
+    }
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Message message;
+                boolean compress;
+                synchronized (DataTrackSender.this) {
+                    message = queue.poll();
+                    if (message == null || released) {
+                        drainScheduled = false;
+                        return;
+                    }
+                    remove(message);
+                    compress = message.text != null && canCompress()
+                            && message.size >= compressionThresholdBytes;
+                }
+                ByteBuffer compressed = compress ? compression.deflate(message.text) : null;
+                if (compressed != null) {
+                    localDataTrack.send(compressed);
+                } else if (message.text != null) {
+                    localDataTrack.send(message.text);
+                } else {
+                    localDataTrack.send(message.binary);
+                }
+                synchronized (DataTrackSender.this) {
+                    sentCount++;
+                }
+            }
+        }
+    };
+
+    synchronized WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putInt("queueLength", queue.size());
+        metrics.putInt("queuedBytes", queuedBytes);
+        metrics.putInt("maxQueueBytes", maxQueueBytes);
+        metrics.putDouble("queued", queuedCount);
+        metrics.putDouble("sent", sentCount);
+        metrics.putDouble("dropped", droppedCount);
+        metrics.putDouble("coalesced", coalescedCount);
+        return metrics;
+    }
+
+    synchronized void release() {
+        released = true;
+        queue.clear();
+        queuedByKey.clear();
+        queuedBytes = 0;
+        // Compression is only used on the sender thread, free it there before quitting
+        senderThreadHandler.post(compression::release);
+        senderThread.quitSafely();
+    }
+}
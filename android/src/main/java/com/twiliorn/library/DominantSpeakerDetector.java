@@ -0,0 +1,272 @@
+/**
+ * Tracks the dominant speaker of the room. With server detection the SDK's dominant
+ * speaker changes are passed on as they are. Without it, for instance in rooms
+ * connected before it was turned on, or while the server has not reported a dominant
+ * speaker within serverTimeoutMs of connecting (peer-to-peer rooms never do), the
+ * dominant speaker is derived from the audio levels of the remote audio tracks:
+ * levels are smoothed over smoothingMs, the loudest participant at or above
+ * minAudioLevel takes over, and a new dominant speaker holds for at least minHoldMs
+ * before the next change. Either way the listener is only
+ * called when the dominant speaker actually changed.
+ * <p>
+ * Room callbacks and stats arrive on the main thread, which is also where this
+ * detector keeps its state and polls stats.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.RemoteAudioTrackPublication;
+import com.twilio.video.RemoteAudioTrackStats;
+import com.twilio.video.RemoteParticipant;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class DominantSpeakerDetector {
+    static final int DEFAULT_SMOOTHING_MS = 600;
+    static final int DEFAULT_MIN_HOLD_MS = 1500;
+    // Audio levels range from 0 to 32767
+    static final int DEFAULT_MIN_AUDIO_LEVEL = 1000;
+    static final int DEFAULT_POLL_INTERVAL_MS = 300;
+    static final int DEFAULT_SERVER_TIMEOUT_MS = 10000;
+    private static final long MIN_POLL_INTERVAL_MS = 100;
+
+    static final String SOURCE_SERVER = "server";
+    static final String SOURCE_AUDIO_LEVEL = "audioLevel";
+
+    interface Listener {
+        void onDominantSpeakerChanged(@Nullable RemoteParticipant participant, String source);
+    }
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private boolean enabled;
+    private boolean useServer = true;
+    private long smoothingMs = DEFAULT_SMOOTHING_MS;
+    private long minHoldMs = DEFAULT_MIN_HOLD_MS;
+    private int minAudioLevel = DEFAULT_MIN_AUDIO_LEVEL;
+    private long pollIntervalMs = DEFAULT_POLL_INTERVAL_MS;
+    private long serverTimeoutMs = DEFAULT_SERVER_TIMEOUT_MS;
+
+    // Whether the current or next room was asked for server detection when connecting
+    private boolean serverRequested;
+    // Whether the server reported a dominant speaker in the current room yet
+    private boolean serverReported;
+    // No server report arrived within serverTimeoutMs, audio levels stand in until one does
+    private boolean serverTimedOut;
+    private Room room;
+
+    // Smoothed audio level of each remote participant by SID
+    private final Map<String, Double> smoothedLevels = new HashMap<>();
+    private long lastSampleAt;
+
+    private String dominantSpeakerSid;
+    private long changedAt;
+    private int changes;
+
+    DominantSpeakerDetector(Listener listener) {
+        this.listener = listener;
+    }
+
+    void configure(boolean enabled, boolean useServer, int smoothingMs, int minHoldMs,
+                   int minAudioLevel, int pollIntervalMs, int serverTimeoutMs) {
+        this.enabled = enabled;
+        this.useServer = useServer;
+        this.smoothingMs = Math.max(0, smoothingMs);
+        this.minHoldMs = Math.max(0, minHoldMs);
+        this.minAudioLevel = Math.max(0, minAudioLevel);
+        this.pollIntervalMs = Math.max(MIN_POLL_INTERVAL_MS, pollIntervalMs);
+        this.serverTimeoutMs = Math.max(0, serverTimeoutMs);
+        if (!enabled) {
+            // Enabling again starts over instead of reporting a stale speaker as unchanged
+            dominantSpeakerSid = null;
+            changedAt = 0;
+        }
+        if (room != null) {
+            scheduleServerTimeout();
+            scheduleStats();
+        }
+    }
+
+    /*
+     * Called when building the ConnectOptions, returns whether to enable the SDK's
+     * dominant speaker detection.
+     */
+    boolean requestServerDetection() {
+        serverRequested = enabled && useServer;
+        return serverRequested;
+    }
+
+    private boolean isUsingServer() {
+        return enabled && useServer && serverRequested && !serverTimedOut;
+    }
+
+    void start(Room room) {
+        this.room = room;
+        serverReported = false;
+        serverTimedOut = false;
+        scheduleServerTimeout();
+        scheduleStats();
+    }
+
+    void stop() {
+        mainThreadHandler.removeCallbacks(statsRunnable);
+        mainThreadHandler.removeCallbacks(serverTimeoutRunnable);
+        room = null;
+        serverReported = false;
+        serverTimedOut = false;
+        smoothedLevels.clear();
+        lastSampleAt = 0;
+        dominantSpeakerSid = null;
+        changedAt = 0;
+    }
+
+    void onServerDominantSpeakerChanged(@Nullable RemoteParticipant participant) {
+        serverReported = true;
+        if (serverTimedOut) {
+            // The server does detect dominant speakers here after all, stop polling
+            serverTimedOut = false;
+            mainThreadHandler.removeCallbacks(serverTimeoutRunnable);
+            scheduleStats();
+        }
+        if (isUsingServer()) {
+            setDominantSpeaker(participant, SOURCE_SERVER);
+        }
+    }
+
+    /*
+     * A dominant speaker that left is no longer dominant, whatever the source.
+     */
+    void onParticipantDisconnected(RemoteParticipant participant) {
+        smoothedLevels.remove(participant.getSid());
+        if (enabled && participant.getSid().equals(dominantSpeakerSid)) {
+            setDominantSpeaker(null, isUsingServer() ? SOURCE_SERVER : SOURCE_AUDIO_LEVEL);
+        }
+    }
+
+    private void setDominantSpeaker(@Nullable RemoteParticipant participant, String source) {
+        String sid = participant != null ? participant.getSid() : null;
+        if (sid == null ? dominantSpeakerSid == null : sid.equals(dominantSpeakerSid)) {
+            return;
+        }
+        dominantSpeakerSid = sid;
+        changedAt = SystemClock.elapsedRealtime();
+        changes++;
+        listener.onDominantSpeakerChanged(participant, source);
+    }
+
+    private void scheduleServerTimeout() {
+        mainThreadHandler.removeCallbacks(serverTimeoutRunnable);
+        if (isUsingServer() && !serverReported) {
+            mainThreadHandler.postDelayed(serverTimeoutRunnable, serverTimeoutMs);
+        }
+    }
+
+    private final Runnable serverTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (room != null && isUsingServer() && !serverReported) {
+                serverTimedOut = true;
+                scheduleStats();
+            }
+        }
+    };
+
+    private void scheduleStats() {
+        mainThreadHandler.removeCallbacks(statsRunnable);
+        if (enabled && !isUsingServer()) {
+            mainThreadHandler.post(statsRunnable);
+        } else {
+            smoothedLevels.clear();
+            lastSampleAt = 0;
+        }
+    }
+
+    private final Runnable statsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final Room polledRoom = room;
+            if (!enabled || isUsingServer() || polledRoom == null) {
+                return;
+            }
+            polledRoom.getStats(new StatsListener() {
+                @Override
+                public void onStats(List<StatsReport> statsReports) {
+                    if (room == polledRoom && enabled && !isUsingServer()) {
+                        onStatsReports(statsReports);
+                    }
+                }
+            });
+            mainThreadHandler.postDelayed(this, pollIntervalMs);
+        }
+    };
+
+    private void onStatsReports(List<StatsReport> statsReports) {
+        Map<String, Integer> levelsByTrackSid = new HashMap<>();
+        for (StatsReport sr : statsReports) {
+            for (RemoteAudioTrackStats s : sr.getRemoteAudioTrackStats()) {
+                levelsByTrackSid.put(s.trackSid, s.audioLevel);
+            }
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        double alpha = lastSampleAt == 0 || smoothingMs == 0
+                ? 1
+                : 1 - Math.exp(-(now - lastSampleAt) / (double) smoothingMs);
+        lastSampleAt = now;
+
+        RemoteParticipant loudest = null;
+        double loudestLevel = minAudioLevel;
+        Map<String, Double> levels = new HashMap<>();
+        for (RemoteParticipant participant : room.getRemoteParticipants()) {
+            int level = 0;
+            for (RemoteAudioTrackPublication publication : participant.getRemoteAudioTracks()) {
+                Integer trackLevel = levelsByTrackSid.get(publication.getTrackSid());
+                if (trackLevel != null && publication.isTrackEnabled()) {
+                    level = Math.max(level, trackLevel);
+                }
+            }
+            Double previous = smoothedLevels.get(participant.getSid());
+            double smoothed = previous == null ? level : previous + alpha * (level - previous);
+            levels.put(participant.getSid(), smoothed);
+            if (smoothed >= loudestLevel) {
+                loudest = participant;
+                loudestLevel = smoothed;
+            }
+        }
+        // Participants that left are dropped here as well
+        smoothedLevels.clear();
+        smoothedLevels.putAll(levels);
+
+        // Nobody speaking keeps the last dominant speaker, like server detection does
+        if (loudest == null || loudest.getSid().equals(dominantSpeakerSid)) {
+            return;
+        }
+        if (dominantSpeakerSid != null && now - changedAt < minHoldMs) {
+            return;
+        }
+        setDominantSpeaker(loudest, SOURCE_AUDIO_LEVEL);
+    }
+
+    WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putBoolean("enabled", enabled);
+        metrics.putString("source", isUsingServer() ? SOURCE_SERVER : SOURCE_AUDIO_LEVEL);
+        metrics.putInt("changes", changes);
+        if (dominantSpeakerSid != null) {
+            metrics.putString("dominantSpeakerSid", dominantSpeakerSid);
+        }
+        return metrics;
+    }
+}
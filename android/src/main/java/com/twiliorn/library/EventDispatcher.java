@@ -0,0 +1,240 @@
+/**
+ * Delivers events of a view to JS in frame-aligned batches.
+ * <p>
+ * Events registered as high priority (connection and track lifecycle) are emitted
+ * right away, after the events queued before them. Every other event waits for the
+ * next frame and is sent with the rest of the frame's events as a single
+ * onEventBatch event. Events are emitted with the lock held, so JS gets them in the
+ * order they were dispatched.
+ * High-volume events can be coalesced by key (latest value wins) or capped, in
+ * which case the oldest queued event of that name is dropped.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class EventDispatcher implements Choreographer.FrameCallback {
+    static final String ON_EVENT_BATCH = "onEventBatch";
+
+    private static class QueuedEvent {
+        final String name;
+        WritableMap data;
+        final long enqueuedAt;
+
+        QueuedEvent(String name, WritableMap data, long enqueuedAt) {
+            this.name = name;
+            this.data = data;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final RCTEventEmitter eventEmitter;
+    private final View view;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private final Set<String> highPriorityEvents = new HashSet<>();
+    private final Set<String> coalescedEvents = new HashSet<>();
+    private final Map<String, Integer> maxQueuedEvents = new HashMap<>();
+
+    // Guarded by this
+    private final List<QueuedEvent> queue = new ArrayList<>();
+    private final Map<String, QueuedEvent> queuedByCoalesceKey = new HashMap<>();
+    private final Map<String, Integer> queuedCountByName = new HashMap<>();
+    private boolean frameScheduled = false;
+    private boolean released = false;
+
+    // Metrics, guarded by this
+    private long highPriorityDispatched;
+    private long batchedDispatched;
+    private long batches;
+    private long coalesced;
+    private long dropped;
+    private int maxQueueDepth;
+    private long totalLatencyMs;
+    private long maxLatencyMs;
+
+    EventDispatcher(RCTEventEmitter eventEmitter, View view) {
+        this.eventEmitter = eventEmitter;
+        this.view = view;
+    }
+
+    void setHighPriority(String... names) {
+        Collections.addAll(highPriorityEvents, names);
+    }
+
+    /*
+     * Queued events with the same name and coalesce key are replaced by the newest one.
+     */
+    void setCoalesced(String... names) {
+        Collections.addAll(coalescedEvents, names);
+    }
+
+    /*
+     * At most maxQueued events of this name wait for a frame, older ones are dropped.
+     */
+    void setMaxQueued(String name, int maxQueued) {
+        maxQueuedEvents.put(name, maxQueued);
+    }
+
+    void dispatch(String name, WritableMap data) {
+        dispatch(name, data, null);
+    }
+
+    void dispatch(String name, WritableMap data, String coalesceKey) {
+        if (highPriorityEvents.contains(name)) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                // Only skip the wait for a frame, events dispatched earlier still go first
+                flush();
+                highPriorityDispatched++;
+                eventEmitter.receiveEvent(view.getId(), name, data);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            long now = SystemClock.uptimeMillis();
+
+            if (coalescedEvents.contains(name)) {
+                String key = coalesceKey != null ? name + ":" + coalesceKey : name;
+                QueuedEvent queued = queuedByCoalesceKey.get(key);
+                if (queued != null) {
+                    // Keep the original position and enqueue time, replace the payload
+                    queued.data = data;
+                    coalesced++;
+                    return;
+                }
+                QueuedEvent event = new QueuedEvent(name, data, now);
+                queuedByCoalesceKey.put(key, event);
+                enqueue(event);
+            } else {
+                Integer maxQueued = maxQueuedEvents.get(name);
+                if (maxQueued != null) {
+                    Integer count = queuedCountByName.get(name);
+                    if (count != null && count >= maxQueued) {
+                        dropOldest(name);
+                    }
+                }
+                enqueue(new QueuedEvent(name, data, now));
+            }
+
+            if (!frameScheduled) {
+                frameScheduled = true;
+                mainThreadHandler.post(() -> Choreographer.getInstance().postFrameCallback(this));
+            }
+        }
+    }
+
+    private void enqueue(QueuedEvent event) {
+        queue.add(event);
+        Integer count = queuedCountByName.get(event.name);
+        queuedCountByName.put(event.name, count == null ? 1 : count + 1);
+        maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+    }
+
+    private void dropOldest(String name) {
+        Iterator<QueuedEvent> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            QueuedEvent queued = iterator.next();
+            if (queued.name.equals(name)) {
+                iterator.remove();
+                queuedCountByName.put(name, queuedCountByName.get(name) - 1);
+                dropped++;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!released) {
+            flush();
+        }
+    }
+
+    /*
+     * Emits the queued events, called with the lock held.
+     */
+    private void flush() {
+        if (queue.isEmpty()) {
+            return;
+        }
+        List<QueuedEvent> batch = new ArrayList<>(queue);
+        queue.clear();
+        queuedByCoalesceKey.clear();
+        queuedCountByName.clear();
+
+        long now = SystemClock.uptimeMillis();
+        for (QueuedEvent event : batch) {
+            long latency = now - event.enqueuedAt;
+            totalLatencyMs += latency;
+            maxLatencyMs = Math.max(maxLatencyMs, latency);
+        }
+        batchedDispatched += batch.size();
+        batches++;
+
+        if (batch.size() == 1) {
+            QueuedEvent event = batch.get(0);
+            eventEmitter.receiveEvent(view.getId(), event.name, event.data);
+            return;
+        }
+
+        WritableArray events = new WritableNativeArray();
+        for (QueuedEvent event : batch) {
+            WritableMap entry = new WritableNativeMap();
+            entry.putString("name", event.name);
+            entry.putMap("data", event.data);
+            events.pushMap(entry);
+        }
+        WritableMap batchEvent = new WritableNativeMap();
+        batchEvent.putArray("events", events);
+        eventEmitter.receiveEvent(view.getId(), ON_EVENT_BATCH, batchEvent);
+    }
+
+    synchronized WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putInt("queueDepth", queue.size());
+        metrics.putInt("maxQueueDepth", maxQueueDepth);
+        metrics.putDouble("highPriorityDispatched", highPriorityDispatched);
+        metrics.putDouble("batchedDispatched", batchedDispatched);
+        metrics.putDouble("batches", batches);
+        metrics.putDouble("coalesced", coalesced);
+        metrics.putDouble("dropped", dropped);
+        metrics.putDouble("averageLatencyMs",
+                batchedDispatched > 0 ? totalLatencyMs / (double) batchedDispatched : 0);
+        metrics.putDouble("maxLatencyMs", maxLatencyMs);
+        return metrics;
+    }
+
+    synchronized void release() {
+        released = true;
+        queue.clear();
+        queuedByCoalesceKey.clear();
+        queuedCountByName.clear();
+    }
+}
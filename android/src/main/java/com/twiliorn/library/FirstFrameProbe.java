@@ -0,0 +1,37 @@
+/**
+ * Renderer that only notes the first frame it receives, used to time how long a
+ * video track takes to deliver frames again. Every frame is released right away
+ * and the listener is called once, on the main thread.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.twilio.video.I420Frame;
+import com.twilio.video.VideoRenderer;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class FirstFrameProbe implements VideoRenderer {
+
+    interface Listener {
+        void onFirstFrame(FirstFrameProbe probe);
+    }
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean received = new AtomicBoolean();
+
+    FirstFrameProbe(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void renderFrame(I420Frame frame) {
+        frame.release();
+        if (received.compareAndSet(false, true)) {
+            mainThreadHandler.post(() -> listener.onFirstFrame(FirstFrameProbe.this));
+        }
+    }
+}
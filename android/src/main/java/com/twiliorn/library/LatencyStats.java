@@ -0,0 +1,38 @@
+/**
+ * Running count, average, minimum and maximum of a latency in milliseconds,
+ * aggregated across sessions for diagnostics. Only used on the main thread.
+ */
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+
+class LatencyStats {
+    private int count;
+    private long totalMs;
+    private long minMs;
+    private long maxMs;
+    private long lastMs;
+
+    void add(long latencyMs) {
+        if (count == 0 || latencyMs < minMs) {
+            minMs = latencyMs;
+        }
+        maxMs = Math.max(maxMs, latencyMs);
+        totalMs += latencyMs;
+        lastMs = latencyMs;
+        count++;
+    }
+
+    WritableMap toMap() {
+        WritableMap map = new WritableNativeMap();
+        map.putInt("count", count);
+        if (count > 0) {
+            map.putDouble("lastMs", lastMs);
+            map.putDouble("averageMs", totalMs / (double) count);
+            map.putDouble("minMs", minMs);
+            map.putDouble("maxMs", maxMs);
+        }
+        return map;
+    }
+}
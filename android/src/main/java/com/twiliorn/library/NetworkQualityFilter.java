@@ -0,0 +1,101 @@
+/**
+ * Hysteresis filter for network quality levels. A participant's new level is only
+ * reported after it has been held for holdMs, and a level equal to the last
+ * reported one is never reported again, so flapping levels produce no events.
+ * <p>
+ * Network quality callbacks arrive on the main thread, which is also where this
+ * filter keeps its state and runs its timers.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.twilio.video.NetworkQualityLevel;
+import com.twilio.video.Participant;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class NetworkQualityFilter {
+
+    interface Listener {
+        void onNetworkQualityLevelChanged(Participant participant, boolean isLocalUser,
+                                          NetworkQualityLevel networkQualityLevel);
+    }
+
+    private static class ParticipantLevel {
+        NetworkQualityLevel reported;
+        NetworkQualityLevel pending;
+        Runnable pendingReport;
+    }
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ParticipantLevel> levels = new HashMap<>();
+    private long holdMs = 0;
+
+    NetworkQualityFilter(Listener listener) {
+        this.listener = listener;
+    }
+
+    void setHoldMs(long holdMs) {
+        this.holdMs = Math.max(0, holdMs);
+    }
+
+    void onNetworkQualityLevelChanged(final Participant participant, final boolean isLocalUser,
+                                      final NetworkQualityLevel networkQualityLevel) {
+        ParticipantLevel state = levels.get(participant.getSid());
+        if (state == null) {
+            state = new ParticipantLevel();
+            levels.put(participant.getSid(), state);
+        }
+
+        if (networkQualityLevel == state.pending) {
+            // Already holding this level, keep the original deadline
+            return;
+        }
+        cancelPending(state);
+        if (networkQualityLevel == state.reported) {
+            return;
+        }
+
+        if (holdMs == 0) {
+            state.reported = networkQualityLevel;
+            listener.onNetworkQualityLevelChanged(participant, isLocalUser, networkQualityLevel);
+            return;
+        }
+
+        final ParticipantLevel heldState = state;
+        heldState.pending = networkQualityLevel;
+        heldState.pendingReport = () -> {
+            heldState.pending = null;
+            heldState.pendingReport = null;
+            heldState.reported = networkQualityLevel;
+            listener.onNetworkQualityLevelChanged(participant, isLocalUser, networkQualityLevel);
+        };
+        mainThreadHandler.postDelayed(heldState.pendingReport, holdMs);
+    }
+
+    void remove(String participantSid) {
+        ParticipantLevel state = levels.remove(participantSid);
+        if (state != null) {
+            cancelPending(state);
+        }
+    }
+
+    void reset() {
+        for (ParticipantLevel state : levels.values()) {
+            cancelPending(state);
+        }
+        levels.clear();
+    }
+
+    private void cancelPending(ParticipantLevel state) {
+        if (state.pendingReport != null) {
+            mainThreadHandler.removeCallbacks(state.pendingReport);
+        }
+        state.pending = null;
+        state.pendingReport = null;
+    }
+}
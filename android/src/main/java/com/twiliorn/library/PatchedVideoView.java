@@ -24,6 +24,11 @@ public class PatchedVideoView extends VideoView {
     private Listener listener;
     private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
 
+    // Frames arriving sooner than this after the last rendered one are dropped, 0 renders all
+    private volatile long minFrameIntervalNs = 0;
+    private long lastRenderedFrameNs = 0;
+    private final RenderStats renderStats = new RenderStats();
+
     public PatchedVideoView(Context context) {
         super(context);
     }
@@ -34,6 +39,18 @@ public class PatchedVideoView extends VideoView {
 
     @Override
     public void renderFrame(I420Frame frame) {
+        long minFrameIntervalNs = this.minFrameIntervalNs;
+        if (minFrameIntervalNs > 0) {
+            long now = System.nanoTime();
+            if (now - lastRenderedFrameNs < minFrameIntervalNs) {
+                // The renderer owns the frame, dropped frames have to be released here
+                frame.release();
+                renderStats.onDropped();
+                return;
+            }
+            lastRenderedFrameNs = now;
+        }
+        long start = System.nanoTime();
         if (notifyFrameRendered) {
             notifyFrameRendered = false;
             mainThreadHandler.post(new Runnable() {
@@ -44,6 +61,26 @@ public class PatchedVideoView extends VideoView {
             });
         }
         super.renderFrame(frame);
+        renderStats.onRendered(start, System.nanoTime());
+    }
+
+    /*
+     * Called right after this renderer is added to a video track.
+     */
+    public void onRendererAttached() {
+        renderStats.onAttached();
+    }
+
+    RenderStats getRenderStats() {
+        return renderStats;
+    }
+
+    /*
+     * Caps how often frames are rendered, 0 renders every frame.
+     */
+    public void setMaxRenderFps(int maxRenderFps) {
+        // Allow some jitter so a source at exactly the cap is not halved
+        minFrameIntervalNs = maxRenderFps > 0 ? 850_000_000L / maxRenderFps : 0;
     }
 
     /*
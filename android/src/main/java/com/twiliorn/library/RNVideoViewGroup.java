@@ -8,8 +8,12 @@ package com.twiliorn.library;
 
 import android.content.Context;
 import android.graphics.Point;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.support.annotation.StringDef;
 
 import com.facebook.react.bridge.WritableMap;
@@ -24,21 +28,57 @@ import org.webrtc.RendererCommon;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
 public class RNVideoViewGroup extends ViewGroup {
     private PatchedVideoView surfaceViewRenderer = null;
-    private int videoWidth = 0;
-    private int videoHeight = 0;
-    private final Object layoutSync = new Object();
+
+    /*
+     * Frame dimensions after rotation, published by the renderer thread in a single value:
+     * width in the upper 32 bits, height in bits 2 to 31 and the rotation in quarter turns
+     * in the lowest 2 bits. 0 until the first frame.
+     */
+    private final AtomicLong frameDimensions = new AtomicLong();
+    private final AtomicBoolean relayoutPending = new AtomicBoolean();
+    // Last dimensions laid out and reported, only used on the main thread
+    private long reportedFrameDimensions = 0;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
     private RendererCommon.ScalingType scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FILL;
     private final RCTEventEmitter eventEmitter;
 
+    /*
+     * The view only renders while it is attached, shown and at least partly on screen.
+     */
+    private final Rect visibleRect = new Rect();
+    private boolean attachedToWindow = false;
+    private boolean renderingVisible = true;
+    private boolean keepLastFrame = true;
+    private final ViewTreeObserver.OnScrollChangedListener onScrollChangedListener =
+            this::updateRenderingVisibility;
+    private final ViewTreeObserver.OnGlobalLayoutListener onGlobalLayoutListener =
+            this::updateRenderingVisibility;
+
+    // Render stats are pushed every renderStatsIntervalMs while attached, 0 disables them
+    private int renderStatsIntervalMs = 0;
+    private final Runnable renderStatsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            WritableMap event = surfaceViewRenderer.getRenderStats().snapshot();
+            event.putBoolean("visible", renderingVisible);
+            pushEvent(RNVideoViewGroup.this, ON_RENDER_STATS, event);
+            postDelayed(this, renderStatsIntervalMs);
+        }
+    };
+
     @Retention(RetentionPolicy.SOURCE)
-    @StringDef({ON_FRAME_DIMENSIONS_CHANGED})
+    @StringDef({ON_FRAME_DIMENSIONS_CHANGED, ON_RENDER_STATS})
     public @interface Events {
         String ON_FRAME_DIMENSIONS_CHANGED = "onFrameDimensionsChanged";
+        String ON_RENDER_STATS = "onRenderStats";
     }
 
     void pushEvent(View view, String name, WritableMap data) {
@@ -58,30 +98,76 @@ public class RNVideoViewGroup extends ViewGroup {
 
                     }
 
+                    /*
+                     * Called on the renderer thread, layout and the event are left to the
+                     * main thread.
+                     */
                     @Override
                     public void onFrameDimensionsChanged(int vw, int vh, int rotation) {
-                        synchronized (layoutSync) {
-                            if (rotation == VideoFrame.RotationAngle.ROTATION_90.getValue() ||
-                                    rotation == VideoFrame.RotationAngle.ROTATION_270.getValue()) {
-                                videoHeight = vw;
-                                videoWidth = vh;
-                            } else {
-                                videoHeight = vh;
-                                videoWidth = vw;
-                            }
-                            RNVideoViewGroup.this.forceLayout();
-
-                            WritableMap event = new WritableNativeMap();
-                            event.putInt("height", vh);
-                            event.putInt("width", vw);
-                            event.putInt("rotation", rotation);
-                            pushEvent(RNVideoViewGroup.this, ON_FRAME_DIMENSIONS_CHANGED, event);
+                        long dimensions = isRotated(rotation)
+                                ? packFrameDimensions(vh, vw, rotation)
+                                : packFrameDimensions(vw, vh, rotation);
+                        long previous = frameDimensions.getAndSet(dimensions);
+                        if (sameFrameDimensions(previous, dimensions)) {
+                            return;
+                        }
+                        if (relayoutPending.compareAndSet(false, true)) {
+                            mainThreadHandler.post(relayoutRunnable);
                         }
                     }
                 }
         );
     }
 
+    private final Runnable relayoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            relayoutPending.set(false);
+            long dimensions = frameDimensions.get();
+            if (sameFrameDimensions(reportedFrameDimensions, dimensions)) {
+                // Changed and changed back before this ran
+                return;
+            }
+            reportedFrameDimensions = dimensions;
+            layoutSurfaceView(getWidth(), getHeight());
+
+            int rotation = (int) (dimensions & 3) * 90;
+            int width = frameWidth(dimensions);
+            int height = frameHeight(dimensions);
+            WritableMap event = new WritableNativeMap();
+            // Reported as delivered by the renderer, before rotation
+            event.putInt("height", isRotated(rotation) ? width : height);
+            event.putInt("width", isRotated(rotation) ? height : width);
+            event.putInt("rotation", rotation);
+            pushEvent(RNVideoViewGroup.this, ON_FRAME_DIMENSIONS_CHANGED, event);
+        }
+    };
+
+    private static boolean isRotated(int rotation) {
+        return rotation == VideoFrame.RotationAngle.ROTATION_90.getValue() ||
+                rotation == VideoFrame.RotationAngle.ROTATION_270.getValue();
+    }
+
+    private static long packFrameDimensions(int width, int height, int rotation) {
+        return ((long) width << 32) | ((long) (height & 0x3FFFFFFF) << 2) | ((rotation / 90) & 3);
+    }
+
+    private static int frameWidth(long dimensions) {
+        return (int) (dimensions >>> 32);
+    }
+
+    private static int frameHeight(long dimensions) {
+        return (int) ((dimensions >>> 2) & 0x3FFFFFFF);
+    }
+
+    /*
+     * Compares the dimensions after rotation, a rotation that ends up with the same
+     * dimensions is not a change.
+     */
+    private static boolean sameFrameDimensions(long a, long b) {
+        return (a & ~3L) == (b & ~3L);
+    }
+
     public PatchedVideoView getSurfaceViewRenderer() {
         return surfaceViewRenderer;
     }
@@ -90,19 +176,117 @@ public class RNVideoViewGroup extends ViewGroup {
         this.scalingType = scalingType;
     }
 
+    /*
+     * When set, the last rendered frame stays on the surface while the renderer is detached,
+     * otherwise the surface is hidden until the view is visible again.
+     */
+    public void setKeepLastFrame(boolean keepLastFrame) {
+        this.keepLastFrame = keepLastFrame;
+        surfaceViewRenderer.setVisibility(renderingVisible || keepLastFrame ? VISIBLE : INVISIBLE);
+    }
+
+    public void setRenderStatsInterval(int renderStatsIntervalMs) {
+        this.renderStatsIntervalMs = Math.max(0, renderStatsIntervalMs);
+        scheduleRenderStats();
+    }
+
+    private void scheduleRenderStats() {
+        removeCallbacks(renderStatsRunnable);
+        if (attachedToWindow && renderStatsIntervalMs > 0) {
+            // Start a fresh window so the first event does not cover the time before
+            surfaceViewRenderer.getRenderStats().snapshot();
+            postDelayed(renderStatsRunnable, renderStatsIntervalMs);
+        }
+    }
+
+    protected boolean isRenderingVisible() {
+        return renderingVisible;
+    }
+
+    /*
+     * Called on the main thread when the view goes off-screen or is hidden and when it is
+     * visible again, subclasses detach and reattach their renderer here.
+     */
+    protected void onRenderingVisibilityChanged(boolean visible) {
+    }
+
+    /*
+     * Called on the main thread when the size the view is drawn at changed, in pixels.
+     */
+    protected void onRenderSizeChanged(int width, int height) {
+    }
+
+    private void updateRenderingVisibility() {
+        if (surfaceViewRenderer == null) {
+            return;
+        }
+        boolean visible = attachedToWindow
+                && getWindowVisibility() == VISIBLE
+                && isShown()
+                && getGlobalVisibleRect(visibleRect);
+        if (visible == renderingVisible) {
+            return;
+        }
+        renderingVisible = visible;
+        if (!keepLastFrame) {
+            surfaceViewRenderer.setVisibility(visible ? VISIBLE : INVISIBLE);
+        }
+        onRenderingVisibilityChanged(visible);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        attachedToWindow = true;
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.addOnScrollChangedListener(onScrollChangedListener);
+        observer.addOnGlobalLayoutListener(onGlobalLayoutListener);
+        updateRenderingVisibility();
+        scheduleRenderStats();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        ViewTreeObserver observer = getViewTreeObserver();
+        observer.removeOnScrollChangedListener(onScrollChangedListener);
+        observer.removeOnGlobalLayoutListener(onGlobalLayoutListener);
+        attachedToWindow = false;
+        updateRenderingVisibility();
+        scheduleRenderStats();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateRenderingVisibility();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        updateRenderingVisibility();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        onRenderSizeChanged(w, h);
+    }
+
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
-        int height = b - t;
-        int width = r - l;
+        layoutSurfaceView(r - l, b - t);
+    }
+
+    private void layoutSurfaceView(int width, int height) {
+        int l, t, r, b;
         if (height == 0 || width == 0) {
             l = t = r = b = 0;
         } else {
-            int videoHeight;
-            int videoWidth;
-            synchronized (layoutSync) {
-                videoHeight = this.videoHeight;
-                videoWidth = this.videoWidth;
-            }
+            long dimensions = frameDimensions.get();
+            int videoHeight = frameHeight(dimensions);
+            int videoWidth = frameWidth(dimensions);
 
             if (videoHeight == 0 || videoWidth == 0) {
                 // These are Twilio defaults.
@@ -0,0 +1,261 @@
+/**
+ * Index of subscribed remote video tracks by track SID and of the renderers
+ * registered for them. A renderer registered for a track that is not subscribed
+ * yet is parked and attached as soon as the track is subscribed, and a renderer
+ * that is not visible stays detached until it is visible again.
+ * <p>
+ * With a priority policy set, the priority of each track follows the largest size
+ * it is drawn at by its visible renderers, see BandwidthProfileController.
+ */
+package com.twiliorn.library;
+
+import android.graphics.Point;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.twilio.video.RemoteVideoTrack;
+import com.twilio.video.TrackPriority;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+class RemoteRendererRegistry {
+    interface PriorityPolicy {
+        /*
+         * width and height are 0 while the track is not drawn by any visible renderer.
+         */
+        TrackPriority getPriority(int width, int height);
+    }
+
+    private final Map<String, RemoteVideoTrack> tracks = new HashMap<>();
+    private final Map<String, Set<PatchedVideoView>> renderersByTrackSid = new HashMap<>();
+    private final Map<PatchedVideoView, String> trackSidByRenderer = new HashMap<>();
+    private final Set<PatchedVideoView> hiddenRenderers = new HashSet<>();
+    // Size of the views holding the renderers in pixels
+    private final Map<PatchedVideoView, Point> renderSizes = new HashMap<>();
+    private PriorityPolicy priorityPolicy;
+    // Last priority set on each subscribed track
+    private final Map<String, TrackPriority> priorities = new HashMap<>();
+
+    synchronized void onTrackSubscribed(String trackSid, RemoteVideoTrack track) {
+        RemoteVideoTrack previous = tracks.put(trackSid, track);
+        if (previous != track) {
+            priorities.remove(trackSid);
+        }
+        updatePriority(trackSid);
+        Set<PatchedVideoView> renderers = renderersByTrackSid.get(trackSid);
+        if (renderers == null) {
+            return;
+        }
+        for (PatchedVideoView renderer : renderers) {
+            if (hiddenRenderers.contains(renderer)) {
+                continue;
+            }
+            if (previous != null && previous != track) {
+                previous.removeRenderer(renderer);
+            }
+            if (previous != track) {
+                attach(track, renderer);
+            }
+        }
+    }
+
+    /*
+     * Renderers stay registered and are attached again if the track is subscribed again.
+     */
+    synchronized void onTrackUnsubscribed(String trackSid) {
+        RemoteVideoTrack track = tracks.remove(trackSid);
+        priorities.remove(trackSid);
+        Set<PatchedVideoView> renderers = renderersByTrackSid.get(trackSid);
+        if (track == null || renderers == null) {
+            return;
+        }
+        for (PatchedVideoView renderer : renderers) {
+            if (!hiddenRenderers.contains(renderer)) {
+                track.removeRenderer(renderer);
+            }
+        }
+    }
+
+    /*
+     * Attaches the renderer to the track with the given SID, now or once it is subscribed,
+     * and detaches it from the track it was registered for before.
+     */
+    synchronized void register(PatchedVideoView renderer, String trackSid) {
+        String registeredTrackSid = trackSidByRenderer.get(renderer);
+        if (trackSid != null && trackSid.equals(registeredTrackSid)) {
+            return;
+        }
+        detach(renderer);
+        if (trackSid == null || trackSid.isEmpty()) {
+            return;
+        }
+
+        trackSidByRenderer.put(renderer, trackSid);
+        Set<PatchedVideoView> renderers = renderersByTrackSid.get(trackSid);
+        if (renderers == null) {
+            renderers = new HashSet<>();
+            renderersByTrackSid.put(trackSid, renderers);
+        }
+        renderers.add(renderer);
+
+        RemoteVideoTrack track = tracks.get(trackSid);
+        if (track != null && !hiddenRenderers.contains(renderer)) {
+            attach(track, renderer);
+        }
+        updatePriority(trackSid);
+    }
+
+    synchronized void unregister(PatchedVideoView renderer) {
+        detach(renderer);
+        hiddenRenderers.remove(renderer);
+        renderSizes.remove(renderer);
+    }
+
+    /*
+     * width and height are the size of the view holding the renderer in pixels.
+     */
+    synchronized void setRenderSize(PatchedVideoView renderer, int width, int height) {
+        Point size = renderSizes.get(renderer);
+        if (size != null && size.x == width && size.y == height) {
+            return;
+        }
+        renderSizes.put(renderer, new Point(width, height));
+        updatePriority(trackSidByRenderer.get(renderer));
+    }
+
+    /*
+     * Null stops setting priorities and gives every track back the publisher's priority.
+     */
+    synchronized void setPriorityPolicy(@Nullable PriorityPolicy priorityPolicy) {
+        this.priorityPolicy = priorityPolicy;
+        updatePriorities();
+    }
+
+    /*
+     * Called when the policy itself changed, for instance when the low bandwidth fallback
+     * started or ended.
+     */
+    synchronized void updatePriorities() {
+        for (String trackSid : tracks.keySet()) {
+            updatePriority(trackSid);
+        }
+    }
+
+    private void updatePriority(@Nullable String trackSid) {
+        RemoteVideoTrack track = trackSid != null ? tracks.get(trackSid) : null;
+        if (track == null) {
+            return;
+        }
+        TrackPriority priority = null;
+        if (priorityPolicy != null) {
+            Point size = getLargestRenderSize(trackSid);
+            priority = priorityPolicy.getPriority(size.x, size.y);
+        }
+        if (priorities.containsKey(trackSid) ? priorities.get(trackSid) == priority : priority == null) {
+            return;
+        }
+        priorities.put(trackSid, priority);
+        track.setPriority(priority);
+    }
+
+    private Point getLargestRenderSize(String trackSid) {
+        Point largest = new Point();
+        Set<PatchedVideoView> renderers = renderersByTrackSid.get(trackSid);
+        if (renderers == null) {
+            return largest;
+        }
+        for (PatchedVideoView renderer : renderers) {
+            Point size = renderSizes.get(renderer);
+            if (size != null && !hiddenRenderers.contains(renderer)
+                    && (long) size.x * size.y > (long) largest.x * largest.y) {
+                largest.set(size.x, size.y);
+            }
+        }
+        return largest;
+    }
+
+    /*
+     * A renderer that is not visible is detached from its track but stays registered.
+     */
+    synchronized void setVisible(PatchedVideoView renderer, boolean visible) {
+        boolean changed = visible ? hiddenRenderers.remove(renderer) : hiddenRenderers.add(renderer);
+        String trackSid = trackSidByRenderer.get(renderer);
+        RemoteVideoTrack track = trackSid != null ? tracks.get(trackSid) : null;
+        if (!changed || track == null) {
+            return;
+        }
+        if (visible) {
+            attach(track, renderer);
+        } else {
+            track.removeRenderer(renderer);
+        }
+        updatePriority(trackSid);
+    }
+
+    private static void attach(RemoteVideoTrack track, PatchedVideoView renderer) {
+        track.addRenderer(renderer);
+        renderer.onRendererAttached();
+    }
+
+    /*
+     * Render totals of every registered renderer with the track SID it renders.
+     */
+    synchronized WritableArray getRenderStats() {
+        WritableArray stats = new WritableNativeArray();
+        for (Map.Entry<PatchedVideoView, String> entry : trackSidByRenderer.entrySet()) {
+            WritableMap renderer = entry.getKey().getRenderStats().totals();
+            renderer.putString("kind", "remote");
+            renderer.putString("trackSid", entry.getValue());
+            renderer.putBoolean("visible", !hiddenRenderers.contains(entry.getKey()));
+            TrackPriority priority = priorities.get(entry.getValue());
+            if (priority != null) {
+                renderer.putString("priority", priority.name().toLowerCase(Locale.US));
+            }
+            stats.pushMap(renderer);
+        }
+        return stats;
+    }
+
+    private void detach(PatchedVideoView renderer) {
+        String trackSid = trackSidByRenderer.remove(renderer);
+        if (trackSid == null) {
+            return;
+        }
+        Set<PatchedVideoView> renderers = renderersByTrackSid.get(trackSid);
+        if (renderers != null) {
+            renderers.remove(renderer);
+            if (renderers.isEmpty()) {
+                renderersByTrackSid.remove(trackSid);
+            }
+        }
+        RemoteVideoTrack track = tracks.get(trackSid);
+        if (track != null && !hiddenRenderers.contains(renderer)) {
+            track.removeRenderer(renderer);
+        }
+        updatePriority(trackSid);
+    }
+
+    /*
+     * Forgets all tracks when leaving a room, renderer registrations are kept.
+     */
+    synchronized void clearTracks() {
+        for (Map.Entry<String, RemoteVideoTrack> entry : tracks.entrySet()) {
+            Set<PatchedVideoView> renderers = renderersByTrackSid.get(entry.getKey());
+            if (renderers != null) {
+                for (PatchedVideoView renderer : renderers) {
+                    if (!hiddenRenderers.contains(renderer)) {
+                        entry.getValue().removeRenderer(renderer);
+                    }
+                }
+            }
+        }
+        tracks.clear();
+        priorities.clear();
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Render timing of a single video view: rendered and dropped frames, time spent
+ * in renderFrame, a histogram of the intervals between rendered frames and the
+ * time from attaching the renderer to a track to its first frame.
+ * <p>
+ * Frames are recorded on the renderer thread and snapshots are taken on the main
+ * thread, the counters are guarded by this.
+ */
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+class RenderStats {
+    // Upper bounds of the inter-frame interval buckets, the last bucket is open ended
+    private static final int[] INTERVAL_BUCKETS_MS = {20, 40, 70, 100, 200};
+
+    // Since the last snapshot that reset them
+    private long windowStartNs = System.nanoTime();
+    private int rendered;
+    private int dropped;
+    private long renderNanos;
+    private long maxRenderNanos;
+    private final int[] intervalCounts = new int[INTERVAL_BUCKETS_MS.length + 1];
+
+    // Since the view was created
+    private long totalRendered;
+    private long totalDropped;
+
+    private long lastRenderedNs;
+    private long attachedAtNs;
+    private boolean awaitingFirstFrame;
+    private long firstFrameLatencyNs = -1;
+
+    /*
+     * Called when the renderer is added to a track, the next rendered frame is its first.
+     */
+    synchronized void onAttached() {
+        attachedAtNs = System.nanoTime();
+        awaitingFirstFrame = true;
+        // The gap while detached is not an inter-frame interval
+        lastRenderedNs = 0;
+    }
+
+    synchronized void onDropped() {
+        dropped++;
+        totalDropped++;
+    }
+
+    synchronized void onRendered(long startNs, long endNs) {
+        if (awaitingFirstFrame) {
+            awaitingFirstFrame = false;
+            firstFrameLatencyNs = startNs - attachedAtNs;
+        }
+        if (lastRenderedNs != 0) {
+            long intervalMs = (startNs - lastRenderedNs) / 1000000;
+            int bucket = 0;
+            while (bucket < INTERVAL_BUCKETS_MS.length && intervalMs >= INTERVAL_BUCKETS_MS[bucket]) {
+                bucket++;
+            }
+            intervalCounts[bucket]++;
+        }
+        lastRenderedNs = startNs;
+
+        long elapsed = endNs - startNs;
+        renderNanos += elapsed;
+        maxRenderNanos = Math.max(maxRenderNanos, elapsed);
+        rendered++;
+        totalRendered++;
+    }
+
+    /*
+     * Returns the counters since the last reset and starts a new window.
+     */
+    synchronized WritableMap snapshot() {
+        long now = System.nanoTime();
+        double windowMs = (now - windowStartNs) / 1000000.0;
+
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("windowMs", windowMs);
+        stats.putDouble("fps", windowMs > 0 ? rendered * 1000.0 / windowMs : 0);
+        stats.putInt("framesRendered", rendered);
+        stats.putInt("framesDropped", dropped);
+        stats.putDouble("averageRenderMs", rendered > 0 ? renderNanos / 1000000.0 / rendered : 0);
+        stats.putDouble("maxRenderMs", maxRenderNanos / 1000000.0);
+
+        WritableArray buckets = new WritableNativeArray();
+        for (int bound : INTERVAL_BUCKETS_MS) {
+            buckets.pushInt(bound);
+        }
+        WritableArray counts = new WritableNativeArray();
+        for (int count : intervalCounts) {
+            counts.pushInt(count);
+        }
+        stats.putArray("intervalBucketsMs", buckets);
+        stats.putArray("intervalCounts", counts);
+        putFirstFrameLatency(stats);
+
+        windowStartNs = now;
+        rendered = 0;
+        dropped = 0;
+        renderNanos = 0;
+        maxRenderNanos = 0;
+        for (int i = 0; i < intervalCounts.length; i++) {
+            intervalCounts[i] = 0;
+        }
+        return stats;
+    }
+
+    /*
+     * Counters since the view was created, does not start a new window.
+     */
+    synchronized WritableMap totals() {
+        WritableMap stats = new WritableNativeMap();
+        stats.putDouble("framesRendered", totalRendered);
+        stats.putDouble("framesDropped", totalDropped);
+        putFirstFrameLatency(stats);
+        return stats;
+    }
+
+    private void putFirstFrameLatency(WritableMap stats) {
+        if (firstFrameLatencyNs >= 0) {
+            stats.putDouble("firstFrameLatencyMs", firstFrameLatencyNs / 1000000.0);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Connection state of the room across the SDK's own reconnects and, when retrying
+ * is enabled, across new connects after the room was disconnected by an error.
+ * Measures how long the room was down until it was back and counts the attempts it
+ * took. Retries back off exponentially with jitter up to maxRetryDelayMs.
+ * <p>
+ * Room callbacks arrive on the main thread, which is also where this keeps its state
+ * and schedules retries.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.TwilioException;
+
+import java.util.Random;
+
+class RoomReconnection {
+    static final int DEFAULT_MAX_RETRIES = 5;
+    static final int DEFAULT_INITIAL_RETRY_DELAY_MS = 1000;
+    static final int DEFAULT_MAX_RETRY_DELAY_MS = 30000;
+
+    static final String STATE_DISCONNECTED = "disconnected";
+    static final String STATE_CONNECTED = "connected";
+    // The SDK is reconnecting the signaling or media connection itself
+    static final String STATE_RECONNECTING = "reconnecting";
+    // The room was disconnected and a new connect is scheduled or in progress
+    static final String STATE_RETRYING = "retrying";
+
+    interface Listener {
+        void onRetry(int retry);
+    }
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable retryRunnable = this::retry;
+    private final Random random = new Random();
+
+    private boolean retryEnabled;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int initialRetryDelayMs = DEFAULT_INITIAL_RETRY_DELAY_MS;
+    private int maxRetryDelayMs = DEFAULT_MAX_RETRY_DELAY_MS;
+
+    private String state = STATE_DISCONNECTED;
+    // Monotonic timestamp (elapsedRealtime) of when the room went down, 0 while up
+    private long downSince;
+    // Reconnecting callbacks and retries since the room went down
+    private int attempts;
+    private int retries;
+
+    private final LatencyStats reconnectDowntime = new LatencyStats();
+    private final LatencyStats retryDowntime = new LatencyStats();
+    private int totalAttempts;
+    private int failedRecoveries;
+
+    RoomReconnection(Listener listener) {
+        this.listener = listener;
+    }
+
+    void configure(boolean retryEnabled, int maxRetries, int initialRetryDelayMs, int maxRetryDelayMs) {
+        this.retryEnabled = retryEnabled;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialRetryDelayMs = Math.max(0, initialRetryDelayMs);
+        this.maxRetryDelayMs = Math.max(this.initialRetryDelayMs, maxRetryDelayMs);
+        if (!retryEnabled && STATE_RETRYING.equals(state)) {
+            mainThreadHandler.removeCallbacks(retryRunnable);
+        }
+    }
+
+    String getState() {
+        return state;
+    }
+
+    boolean isRetrying() {
+        return STATE_RETRYING.equals(state);
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    /*
+     * Returns how long the room was down when this connect ends a retry, otherwise -1.
+     */
+    long onConnected() {
+        long downtime = -1;
+        if (STATE_RETRYING.equals(state)) {
+            downtime = SystemClock.elapsedRealtime() - downSince;
+            retryDowntime.add(downtime);
+        }
+        state = STATE_CONNECTED;
+        return downtime;
+    }
+
+    void onReconnecting() {
+        if (!STATE_RECONNECTING.equals(state)) {
+            state = STATE_RECONNECTING;
+            downSince = SystemClock.elapsedRealtime();
+            attempts = 0;
+            retries = 0;
+        }
+        attempts++;
+        totalAttempts++;
+    }
+
+    /*
+     * Returns how long the room was down.
+     */
+    long onReconnected() {
+        long downtime = downSince != 0 ? SystemClock.elapsedRealtime() - downSince : 0;
+        reconnectDowntime.add(downtime);
+        state = STATE_CONNECTED;
+        return downtime;
+    }
+
+    /*
+     * Called when the room was disconnected by an error or a retry failed to connect.
+     * Returns the delay until the next retry, or -1 when the room stays disconnected.
+     */
+    long onConnectionLost(TwilioException error) {
+        if (!STATE_RECONNECTING.equals(state) && !STATE_RETRYING.equals(state)) {
+            downSince = SystemClock.elapsedRealtime();
+            attempts = 0;
+            retries = 0;
+        }
+        if (!retryEnabled || retries >= maxRetries || !isRetryable(error)) {
+            if (attempts > 0) {
+                failedRecoveries++;
+            }
+            reset();
+            return -1;
+        }
+
+        state = STATE_RETRYING;
+        long delay = Math.min((long) initialRetryDelayMs << Math.min(retries, 16), maxRetryDelayMs);
+        // Up to 20% either way, so clients dropped together do not all retry at once
+        delay += (long) (delay * 0.4 * (random.nextDouble() - 0.5));
+        mainThreadHandler.postDelayed(retryRunnable, delay);
+        return delay;
+    }
+
+    /*
+     * The room was disconnected on purpose or is gone, nothing is retried.
+     */
+    void onDisconnected() {
+        reset();
+    }
+
+    private void retry() {
+        retries++;
+        attempts++;
+        totalAttempts++;
+        listener.onRetry(retries);
+    }
+
+    private void reset() {
+        mainThreadHandler.removeCallbacks(retryRunnable);
+        state = STATE_DISCONNECTED;
+        downSince = 0;
+        attempts = 0;
+        retries = 0;
+    }
+
+    /*
+     * Errors that another connect would run into again are not retried.
+     */
+    private static boolean isRetryable(TwilioException error) {
+        if (error == null) {
+            return false;
+        }
+        switch (error.getCode()) {
+            case TwilioException.ROOM_ROOM_COMPLETED_EXCEPTION:
+            case TwilioException.PARTICIPANT_DUPLICATE_IDENTITY_EXCEPTION:
+            case TwilioException.ACCESS_TOKEN_EXPIRED_EXCEPTION:
+            case TwilioException.ACCESS_TOKEN_INVALID_EXCEPTION:
+            case TwilioException.ROOM_NOT_FOUND_EXCEPTION:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putString("state", state);
+        metrics.putBoolean("retryEnabled", retryEnabled);
+        metrics.putInt("attempts", totalAttempts);
+        metrics.putInt("failedRecoveries", failedRecoveries);
+        metrics.putMap("reconnectDowntime", reconnectDowntime.toMap());
+        metrics.putMap("retryDowntime", retryDowntime.toMap());
+        return metrics;
+    }
+}
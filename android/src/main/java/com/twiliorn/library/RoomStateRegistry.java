@@ -0,0 +1,219 @@
+/**
+ * Current state of the room: its participants, their track publications with the
+ * subscription state and enabled flag of each, and the last network quality level
+ * reported for each participant. Kept up to date by the room and participant
+ * callbacks so the whole state can be read in one snapshot, for instance after a JS
+ * reload, instead of replaying every event.
+ * <p>
+ * Callbacks update it on the main thread and snapshots may be taken from any thread,
+ * access is guarded by this.
+ */
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.LocalAudioTrackPublication;
+import com.twilio.video.LocalDataTrackPublication;
+import com.twilio.video.LocalParticipant;
+import com.twilio.video.LocalVideoTrackPublication;
+import com.twilio.video.NetworkQualityLevel;
+import com.twilio.video.Participant;
+import com.twilio.video.RemoteAudioTrackPublication;
+import com.twilio.video.RemoteDataTrackPublication;
+import com.twilio.video.RemoteParticipant;
+import com.twilio.video.RemoteVideoTrackPublication;
+import com.twilio.video.TrackPublication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class RoomStateRegistry {
+    static final String KIND_AUDIO = "audio";
+    static final String KIND_VIDEO = "video";
+    static final String KIND_DATA = "data";
+
+    static final String SUBSCRIBED = "subscribed";
+    static final String UNSUBSCRIBED = "unsubscribed";
+    static final String SUBSCRIPTION_FAILED = "failed";
+
+    private static class TrackState {
+        final String trackSid;
+        final String kind;
+        String trackName;
+        boolean enabled;
+        // Null for local tracks
+        String subscription;
+
+        TrackState(String trackSid, String kind) {
+            this.trackSid = trackSid;
+            this.kind = kind;
+        }
+    }
+
+    private static class ParticipantState {
+        final String sid;
+        final boolean local;
+        String identity;
+        // As reported in events, -1 while unknown
+        int networkQualityLevel = -1;
+        // Ordered by publication
+        final Map<String, TrackState> tracks = new LinkedHashMap<>();
+
+        ParticipantState(String sid, boolean local) {
+            this.sid = sid;
+            this.local = local;
+        }
+    }
+
+    private String roomName;
+    private String roomSid;
+    private String state = RoomReconnection.STATE_DISCONNECTED;
+    // Local participant first, then remote participants in the order they joined
+    private final Map<String, ParticipantState> participants = new LinkedHashMap<>();
+
+    synchronized void onConnected(String roomName, String roomSid, LocalParticipant localParticipant) {
+        this.roomName = roomName;
+        this.roomSid = roomSid;
+        participants.clear();
+        putLocalParticipant(localParticipant);
+    }
+
+    synchronized void setState(String state) {
+        this.state = state;
+    }
+
+    /*
+     * Forgets the room and its participants, the state is set separately.
+     */
+    synchronized void clear() {
+        roomName = null;
+        roomSid = null;
+        participants.clear();
+    }
+
+    /*
+     * The local participant has no unpublished callbacks, so its publications are read
+     * again as a whole whenever they may have changed.
+     */
+    synchronized void putLocalParticipant(LocalParticipant localParticipant) {
+        ParticipantState participant = getParticipant(localParticipant, true);
+        participant.tracks.clear();
+        for (LocalAudioTrackPublication publication : localParticipant.getLocalAudioTracks()) {
+            putTrack(participant, publication, KIND_AUDIO, null);
+        }
+        for (LocalVideoTrackPublication publication : localParticipant.getLocalVideoTracks()) {
+            putTrack(participant, publication, KIND_VIDEO, null);
+        }
+        for (LocalDataTrackPublication publication : localParticipant.getLocalDataTracks()) {
+            putTrack(participant, publication, KIND_DATA, null);
+        }
+    }
+
+    synchronized void putRemoteParticipant(RemoteParticipant remoteParticipant) {
+        ParticipantState participant = getParticipant(remoteParticipant, false);
+        for (RemoteAudioTrackPublication publication : remoteParticipant.getRemoteAudioTracks()) {
+            putTrack(participant, publication, KIND_AUDIO,
+                    publication.isTrackSubscribed() ? SUBSCRIBED : UNSUBSCRIBED);
+        }
+        for (RemoteVideoTrackPublication publication : remoteParticipant.getRemoteVideoTracks()) {
+            putTrack(participant, publication, KIND_VIDEO,
+                    publication.isTrackSubscribed() ? SUBSCRIBED : UNSUBSCRIBED);
+        }
+        for (RemoteDataTrackPublication publication : remoteParticipant.getRemoteDataTracks()) {
+            putTrack(participant, publication, KIND_DATA,
+                    publication.isTrackSubscribed() ? SUBSCRIBED : UNSUBSCRIBED);
+        }
+    }
+
+    synchronized void removeParticipant(String participantSid) {
+        participants.remove(participantSid);
+    }
+
+    /*
+     * Adds or updates a remote publication. A null subscription keeps the current one and
+     * also refreshes the track name and enabled flag.
+     */
+    synchronized void putRemoteTrack(RemoteParticipant remoteParticipant, TrackPublication publication,
+                                     String kind, @Nullable String subscription) {
+        putTrack(getParticipant(remoteParticipant, false), publication, kind, subscription);
+    }
+
+    synchronized void removeTrack(Participant participant, TrackPublication publication) {
+        ParticipantState state = participants.get(participant.getSid());
+        if (state != null) {
+            state.tracks.remove(publication.getTrackSid());
+        }
+    }
+
+    synchronized void setNetworkQualityLevel(Participant participant, boolean local,
+                                             NetworkQualityLevel networkQualityLevel) {
+        // Twilio SDK defines Enum 0 as UNKNOWN and 1 as Quality ZERO
+        getParticipant(participant, local).networkQualityLevel = networkQualityLevel.ordinal() - 1;
+    }
+
+    private ParticipantState getParticipant(Participant participant, boolean local) {
+        ParticipantState state = participants.get(participant.getSid());
+        if (state == null) {
+            state = new ParticipantState(participant.getSid(), local);
+            participants.put(participant.getSid(), state);
+        }
+        state.identity = participant.getIdentity();
+        return state;
+    }
+
+    private static void putTrack(ParticipantState participant, TrackPublication publication,
+                                 String kind, @Nullable String subscription) {
+        TrackState track = participant.tracks.get(publication.getTrackSid());
+        if (track == null) {
+            track = new TrackState(publication.getTrackSid(), kind);
+            track.subscription = participant.local ? null : UNSUBSCRIBED;
+            participant.tracks.put(publication.getTrackSid(), track);
+        }
+        track.trackName = publication.getTrackName();
+        track.enabled = publication.isTrackEnabled();
+        if (subscription != null && !participant.local) {
+            track.subscription = subscription;
+        }
+    }
+
+    synchronized WritableMap snapshot() {
+        WritableMap snapshot = new WritableNativeMap();
+        snapshot.putString("state", state);
+        if (roomSid != null) {
+            snapshot.putString("roomName", roomName);
+            snapshot.putString("roomSid", roomSid);
+        }
+
+        WritableArray participantArray = new WritableNativeArray();
+        for (ParticipantState participant : participants.values()) {
+            WritableMap participantMap = new WritableNativeMap();
+            participantMap.putString("sid", participant.sid);
+            participantMap.putString("identity", participant.identity);
+            participantMap.putBoolean("isLocalUser", participant.local);
+            if (participant.networkQualityLevel >= 0) {
+                participantMap.putInt("networkQualityLevel", participant.networkQualityLevel);
+            }
+
+            WritableArray trackArray = new WritableNativeArray();
+            for (TrackState track : participant.tracks.values()) {
+                WritableMap trackMap = new WritableNativeMap();
+                trackMap.putString("trackSid", track.trackSid);
+                trackMap.putString("trackName", track.trackName);
+                trackMap.putString("kind", track.kind);
+                trackMap.putBoolean("enabled", track.enabled);
+                if (track.subscription != null) {
+                    trackMap.putString("subscription", track.subscription);
+                }
+                trackArray.pushMap(trackMap);
+            }
+            participantMap.putArray("tracks", trackArray);
+            participantArray.pushMap(participantMap);
+        }
+        snapshot.putArray("participants", participantArray);
+        return snapshot;
+    }
+}
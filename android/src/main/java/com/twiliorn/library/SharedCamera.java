@@ -0,0 +1,147 @@
+/**
+ * The camera capturer and the local video track capturing from it, shared by every
+ * session that uses the camera. A session that needs local video while another one
+ * already has the camera open, for instance when moving from a lobby to a breakout
+ * room, publishes the same track instead of opening the camera again. The track is
+ * released once the last session lets go of it.
+ * <p>
+ * Only used on the main thread.
+ */
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.twilio.video.CameraCapturer;
+import com.twilio.video.LocalVideoTrack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class SharedCamera {
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static CameraCapturer capturer;
+    private static LocalVideoTrack track;
+    // Each session holding the track and the listener its capturer callbacks go to
+    private static final Map<Object, CameraCapturer.Listener> holders = new HashMap<>();
+
+    /*
+     * Creates a capturer whose callbacks go to listener on the main thread. Once the capturer
+     * is the shared one they go to every session holding it instead, the session that
+     * created it may be gone by then.
+     */
+    static CameraCapturer createCapturer(Context context, CameraCapturer.CameraSource source,
+                                         CameraCapturer.Listener listener) {
+        CapturerListener capturerListener = new CapturerListener(listener);
+        capturerListener.createdCapturer = new CameraCapturer(context, source, capturerListener);
+        return capturerListener.createdCapturer;
+    }
+
+    /*
+     * Returns the open track, now also held by holder, or null when the camera is not open.
+     */
+    @Nullable
+    static LocalVideoTrack acquire(Object holder, CameraCapturer.Listener listener) {
+        if (track != null) {
+            holders.put(holder, listener);
+        }
+        return track;
+    }
+
+    @Nullable
+    static CameraCapturer getCapturer() {
+        return track != null ? capturer : null;
+    }
+
+    /*
+     * holder opened the camera and created the track, other sessions can acquire it now.
+     */
+    static void open(Object holder, CameraCapturer.Listener listener, CameraCapturer capturer,
+                     LocalVideoTrack track) {
+        SharedCamera.capturer = capturer;
+        SharedCamera.track = track;
+        holders.clear();
+        holders.put(holder, listener);
+    }
+
+    static boolean isShared() {
+        return holders.size() > 1;
+    }
+
+    /*
+     * The only holder created a new track in place of the old one.
+     */
+    static void replaceTrack(Object holder, LocalVideoTrack track) {
+        if (holders.containsKey(holder)) {
+            SharedCamera.track = track;
+        }
+    }
+
+    /*
+     * holder stops using the track. Returns true when the track is no longer used by any
+     * session and the caller has to release it, false while other sessions still hold it.
+     */
+    static boolean release(Object holder, LocalVideoTrack localVideoTrack) {
+        if (localVideoTrack != track) {
+            // Never shared, the holder owns it
+            return true;
+        }
+        holders.remove(holder);
+        if (!holders.isEmpty()) {
+            return false;
+        }
+        track = null;
+        capturer = null;
+        return true;
+    }
+
+    private static List<CameraCapturer.Listener> listenersOf(CameraCapturer capturer,
+                                                             CameraCapturer.Listener creator) {
+        if (capturer != null && capturer == getCapturer() && !holders.isEmpty()) {
+            return new ArrayList<>(holders.values());
+        }
+        return Collections.singletonList(creator);
+    }
+
+    private static class CapturerListener implements CameraCapturer.Listener {
+        private final CameraCapturer.Listener creator;
+        // null until the constructor of the capturer returned
+        private CameraCapturer createdCapturer;
+
+        CapturerListener(CameraCapturer.Listener creator) {
+            this.creator = creator;
+        }
+
+        @Override
+        public void onFirstFrameAvailable() {
+            mainHandler.post(() -> {
+                for (CameraCapturer.Listener listener : listenersOf(createdCapturer, creator)) {
+                    listener.onFirstFrameAvailable();
+                }
+            });
+        }
+
+        @Override
+        public void onCameraSwitched() {
+            mainHandler.post(() -> {
+                for (CameraCapturer.Listener listener : listenersOf(createdCapturer, creator)) {
+                    listener.onCameraSwitched();
+                }
+            });
+        }
+
+        @Override
+        public void onError(final int errorCode) {
+            mainHandler.post(() -> {
+                for (CameraCapturer.Listener listener : listenersOf(createdCapturer, creator)) {
+                    listener.onError(errorCode);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Compact encoding for stats reports. Instead of one map per track, every
+ * track category of a peer connection is written as a flat array of numbers
+ * (and a flat array of strings), with the field names sent once per event.
+ * A field mask limits serialization to the metrics the caller asked for.
+ */
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.BaseTrackStats;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.RemoteAudioTrackStats;
+import com.twilio.video.RemoteTrackStats;
+import com.twilio.video.RemoteVideoTrackStats;
+import com.twilio.video.StatsReport;
+
+import java.util.List;
+
+class StatsEncoder {
+    static final int ALL_FIELDS = -1;
+
+    // Numeric fields, the index is the bit in the field mask
+    private static final int PACKETS_LOST = 0;
+    private static final int TIMESTAMP = 1;
+    private static final int BYTES_SENT = 2;
+    private static final int PACKETS_SENT = 3;
+    private static final int ROUND_TRIP_TIME = 4;
+    private static final int BYTES_RECEIVED = 5;
+    private static final int PACKETS_RECEIVED = 6;
+    private static final int AUDIO_LEVEL = 7;
+    private static final int JITTER = 8;
+    private static final int WIDTH = 9;
+    private static final int HEIGHT = 10;
+    private static final int FRAME_RATE = 11;
+
+    // String fields, the index is the bit in the field mask
+    private static final int TRACK_SID = 12;
+    private static final int CODEC = 13;
+    private static final int SSRC = 14;
+
+    private static final String[] FIELD_NAMES = {
+            "packetsLost", "timestamp", "bytesSent", "packetsSent", "roundTripTime",
+            "bytesReceived", "packetsReceived", "audioLevel", "jitter", "width", "height",
+            "frameRate", "trackSid", "codec", "ssrc"
+    };
+
+    private static final int[] STRING_FIELDS = {TRACK_SID, CODEC, SSRC};
+    private static final int[] LOCAL_AUDIO_FIELDS = {
+            PACKETS_LOST, TIMESTAMP, BYTES_SENT, PACKETS_SENT, ROUND_TRIP_TIME, AUDIO_LEVEL, JITTER
+    };
+    private static final int[] LOCAL_VIDEO_FIELDS = {
+            PACKETS_LOST, TIMESTAMP, BYTES_SENT, PACKETS_SENT, ROUND_TRIP_TIME, WIDTH, HEIGHT, FRAME_RATE
+    };
+    private static final int[] REMOTE_AUDIO_FIELDS = {
+            PACKETS_LOST, TIMESTAMP, BYTES_RECEIVED, PACKETS_RECEIVED, AUDIO_LEVEL, JITTER
+    };
+    private static final int[] REMOTE_VIDEO_FIELDS = {
+            PACKETS_LOST, TIMESTAMP, BYTES_RECEIVED, PACKETS_RECEIVED, WIDTH, HEIGHT, FRAME_RATE
+    };
+
+    private StatsEncoder() {
+    }
+
+    /*
+     * Builds a field mask from a list of field names. An empty or missing list selects every field.
+     */
+    static int parseFieldMask(ReadableArray fields) {
+        if (fields == null || fields.size() == 0) {
+            return ALL_FIELDS;
+        }
+        int mask = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.getString(i);
+            for (int field = 0; field < FIELD_NAMES.length; field++) {
+                if (FIELD_NAMES[field].equals(name)) {
+                    mask |= 1 << field;
+                }
+            }
+        }
+        return mask;
+    }
+
+    static WritableMap encode(List<StatsReport> statsReports, int fieldMask) {
+        WritableMap fields = new WritableNativeMap();
+        fields.putArray("localAudioTrackStats", fieldNames(LOCAL_AUDIO_FIELDS, fieldMask));
+        fields.putArray("localVideoTrackStats", fieldNames(LOCAL_VIDEO_FIELDS, fieldMask));
+        fields.putArray("remoteAudioTrackStats", fieldNames(REMOTE_AUDIO_FIELDS, fieldMask));
+        fields.putArray("remoteVideoTrackStats", fieldNames(REMOTE_VIDEO_FIELDS, fieldMask));
+
+        WritableMap peerConnections = new WritableNativeMap();
+        for (StatsReport sr : statsReports) {
+            WritableMap connectionStats = new WritableNativeMap();
+            encodeTracks(connectionStats, "localAudioTrackStats", sr.getLocalAudioTrackStats(),
+                    LOCAL_AUDIO_FIELDS, fieldMask);
+            encodeTracks(connectionStats, "localVideoTrackStats", sr.getLocalVideoTrackStats(),
+                    LOCAL_VIDEO_FIELDS, fieldMask);
+            encodeTracks(connectionStats, "remoteAudioTrackStats", sr.getRemoteAudioTrackStats(),
+                    REMOTE_AUDIO_FIELDS, fieldMask);
+            encodeTracks(connectionStats, "remoteVideoTrackStats", sr.getRemoteVideoTrackStats(),
+                    REMOTE_VIDEO_FIELDS, fieldMask);
+            peerConnections.putMap(sr.getPeerConnectionId(), connectionStats);
+        }
+
+        WritableMap event = new WritableNativeMap();
+        event.putString("encoding", "compact");
+        event.putMap("fields", fields);
+        event.putArray("stringFields", fieldNames(STRING_FIELDS, fieldMask));
+        event.putMap("peerConnections", peerConnections);
+        return event;
+    }
+
+    private static WritableArray fieldNames(int[] categoryFields, int fieldMask) {
+        WritableArray names = new WritableNativeArray();
+        for (int field : categoryFields) {
+            if (isSelected(field, fieldMask)) {
+                names.pushString(FIELD_NAMES[field]);
+            }
+        }
+        return names;
+    }
+
+    /*
+     * Writes <category> as a flat array of numbers with one stride per track and
+     * <category>Strings as a flat array of the selected string fields.
+     */
+    private static void encodeTracks(WritableMap connectionStats, String category,
+                                     List<? extends BaseTrackStats> tracks,
+                                     int[] categoryFields, int fieldMask) {
+        WritableArray values = new WritableNativeArray();
+        WritableArray strings = new WritableNativeArray();
+        for (BaseTrackStats stats : tracks) {
+            for (int field : categoryFields) {
+                if (isSelected(field, fieldMask)) {
+                    values.pushDouble(numericValue(stats, field));
+                }
+            }
+            for (int field : STRING_FIELDS) {
+                if (isSelected(field, fieldMask)) {
+                    strings.pushString(stringValue(stats, field));
+                }
+            }
+        }
+        connectionStats.putArray(category, values);
+        connectionStats.putArray(category + "Strings", strings);
+    }
+
+    private static boolean isSelected(int field, int fieldMask) {
+        return (fieldMask & (1 << field)) != 0;
+    }
+
+    private static double numericValue(BaseTrackStats stats, int field) {
+        switch (field) {
+            case PACKETS_LOST:
+                return stats.packetsLost;
+            case TIMESTAMP:
+                return stats.timestamp;
+            case BYTES_SENT:
+                return ((LocalTrackStats) stats).bytesSent;
+            case PACKETS_SENT:
+                return ((LocalTrackStats) stats).packetsSent;
+            case ROUND_TRIP_TIME:
+                return ((LocalTrackStats) stats).roundTripTime;
+            case BYTES_RECEIVED:
+                return ((RemoteTrackStats) stats).bytesReceived;
+            case PACKETS_RECEIVED:
+                return ((RemoteTrackStats) stats).packetsReceived;
+            case AUDIO_LEVEL:
+                if (stats instanceof LocalAudioTrackStats) {
+                    return ((LocalAudioTrackStats) stats).audioLevel;
+                }
+                return ((RemoteAudioTrackStats) stats).audioLevel;
+            case JITTER:
+                if (stats instanceof LocalAudioTrackStats) {
+                    return ((LocalAudioTrackStats) stats).jitter;
+                }
+                return ((RemoteAudioTrackStats) stats).jitter;
+            case WIDTH:
+                if (stats instanceof LocalVideoTrackStats) {
+                    return ((LocalVideoTrackStats) stats).dimensions.width;
+                }
+                return ((RemoteVideoTrackStats) stats).dimensions.width;
+            case HEIGHT:
+                if (stats instanceof LocalVideoTrackStats) {
+                    return ((LocalVideoTrackStats) stats).dimensions.height;
+                }
+                return ((RemoteVideoTrackStats) stats).dimensions.height;
+            case FRAME_RATE:
+                if (stats instanceof LocalVideoTrackStats) {
+                    return ((LocalVideoTrackStats) stats).frameRate;
+                }
+                return ((RemoteVideoTrackStats) stats).frameRate;
+            default:
+                return 0;
+        }
+    }
+
+    private static String stringValue(BaseTrackStats stats, int field) {
+        switch (field) {
+            case TRACK_SID:
+                return stats.trackSid;
+            case CODEC:
+                return stats.codec;
+            case SSRC:
+                return stats.ssrc;
+            default:
+                return null;
+        }
+    }
+}
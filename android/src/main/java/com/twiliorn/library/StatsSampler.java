@@ -0,0 +1,216 @@
+/**
+ * Periodically samples Room stats on a background thread and derives per-track
+ * rates from consecutive reports, so JS does not have to poll getStats() and
+ * diff the raw counters itself.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.RemoteAudioTrackStats;
+import com.twilio.video.RemoteVideoTrackStats;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class StatsSampler {
+    private static final String STATS_SAMPLER_THREAD_NAME = "StatsSampler";
+    private static final long MIN_INTERVAL_MS = 250;
+
+    interface Listener {
+        void onSample(WritableMap sample);
+    }
+
+    /*
+     * Counters kept from the previous report of a track, keyed by track SID.
+     */
+    private static class TrackSample {
+        long bytes;
+        long packets;
+        long packetsLost;
+        int frameRate;
+        long sampledAt;
+    }
+
+    private final Listener listener;
+    private HandlerThread samplerThread;
+    private Handler samplerThreadHandler;
+    private Room room;
+    private long intervalMs;
+
+    // Allocated for each sampler thread and only touched on that thread
+    private Map<String, TrackSample> previousSamples;
+
+    StatsSampler(Listener listener) {
+        this.listener = listener;
+    }
+
+    synchronized void start(Room room, long intervalMs) {
+        stop();
+        if (room == null) {
+            return;
+        }
+        this.room = room;
+        this.intervalMs = Math.max(MIN_INTERVAL_MS, intervalMs);
+        previousSamples = new HashMap<>();
+
+        samplerThread = new HandlerThread(STATS_SAMPLER_THREAD_NAME);
+        samplerThread.start();
+        samplerThreadHandler = new Handler(samplerThread.getLooper());
+        samplerThreadHandler.post(sampleRunnable);
+    }
+
+    synchronized void stop() {
+        if (samplerThread != null) {
+            samplerThreadHandler.removeCallbacksAndMessages(null);
+            samplerThread.quit();
+            samplerThread = null;
+            samplerThreadHandler = null;
+        }
+        // A request still in flight on the old thread keeps its own map
+        previousSamples = null;
+        room = null;
+    }
+
+    synchronized boolean isRunning() {
+        return samplerThread != null;
+    }
+
+    private final Runnable sampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final Room sampledRoom;
+            final Handler threadHandler;
+            final Map<String, TrackSample> samples;
+            final long interval;
+            synchronized (StatsSampler.this) {
+                sampledRoom = room;
+                threadHandler = samplerThreadHandler;
+                samples = previousSamples;
+                interval = intervalMs;
+            }
+            if (sampledRoom == null || threadHandler == null) {
+                return;
+            }
+            /*
+             * Stats are delivered on the thread that requested them, so the listener
+             * runs on the sampler thread as well.
+             */
+            sampledRoom.getStats(new StatsListener() {
+                @Override
+                public void onStats(List<StatsReport> statsReports) {
+                    synchronized (StatsSampler.this) {
+                        if (samplerThreadHandler != threadHandler) {
+                            // Stopped or restarted while the request was in flight
+                            return;
+                        }
+                    }
+                    listener.onSample(buildSample(statsReports, samples, interval));
+                }
+            });
+            threadHandler.postDelayed(this, interval);
+        }
+    };
+
+    private WritableMap buildSample(List<StatsReport> statsReports,
+                                    Map<String, TrackSample> previousSamples, long intervalMs) {
+        long now = SystemClock.elapsedRealtime();
+        Map<String, TrackSample> currentSamples = new HashMap<>();
+        WritableArray tracks = new WritableNativeArray();
+        String localVideoCodec = null;
+
+        for (StatsReport sr : statsReports) {
+            for (LocalAudioTrackStats s : sr.getLocalAudioTrackStats()) {
+                WritableMap track = buildTrack(s.trackSid, "localAudio", s.codec, s.bytesSent,
+                        s.packetsSent, s.packetsLost, 0, now, previousSamples, currentSamples);
+                track.putDouble("roundTripTime", s.roundTripTime);
+                track.putInt("audioLevel", s.audioLevel);
+                tracks.pushMap(track);
+            }
+            for (LocalVideoTrackStats s : sr.getLocalVideoTrackStats()) {
+                WritableMap track = buildTrack(s.trackSid, "localVideo", s.codec, s.bytesSent,
+                        s.packetsSent, s.packetsLost, s.frameRate, now, previousSamples,
+                        currentSamples);
+                track.putDouble("roundTripTime", s.roundTripTime);
+                tracks.pushMap(track);
+                localVideoCodec = s.codec;
+            }
+            for (RemoteAudioTrackStats s : sr.getRemoteAudioTrackStats()) {
+                WritableMap track = buildTrack(s.trackSid, "remoteAudio", s.codec, s.bytesReceived,
+                        s.packetsReceived, s.packetsLost, 0, now, previousSamples, currentSamples);
+                track.putInt("audioLevel", s.audioLevel);
+                track.putInt("jitter", s.jitter);
+                tracks.pushMap(track);
+            }
+            for (RemoteVideoTrackStats s : sr.getRemoteVideoTrackStats()) {
+                tracks.pushMap(buildTrack(s.trackSid, "remoteVideo", s.codec, s.bytesReceived,
+                        s.packetsReceived, s.packetsLost, s.frameRate, now, previousSamples,
+                        currentSamples));
+            }
+        }
+
+        // Tracks that disappeared from the report are dropped here
+        previousSamples.clear();
+        previousSamples.putAll(currentSamples);
+
+        WritableMap sample = new WritableNativeMap();
+        sample.putDouble("timestamp", System.currentTimeMillis());
+        sample.putDouble("interval", intervalMs);
+        sample.putArray("tracks", tracks);
+        if (localVideoCodec != null) {
+            sample.putString("localVideoCodec", localVideoCodec);
+        }
+        return sample;
+    }
+
+    private WritableMap buildTrack(String trackSid, String kind, String codec, long bytes,
+                                   long packets, long packetsLost, int frameRate, long now,
+                                   Map<String, TrackSample> previousSamples,
+                                   Map<String, TrackSample> currentSamples) {
+        TrackSample current = new TrackSample();
+        current.bytes = bytes;
+        current.packets = packets;
+        current.packetsLost = packetsLost;
+        current.frameRate = frameRate;
+        current.sampledAt = now;
+        currentSamples.put(trackSid, current);
+
+        WritableMap track = new WritableNativeMap();
+        track.putString("trackSid", trackSid);
+        track.putString("kind", kind);
+        track.putString("codec", codec);
+        track.putInt("frameRate", frameRate);
+
+        TrackSample previous = previousSamples.get(trackSid);
+        long elapsed = previous != null ? now - previous.sampledAt : 0;
+        if (previous == null || elapsed <= 0 || bytes < previous.bytes) {
+            // First sample for this track or the counters were reset; no rates yet
+            track.putDouble("bitrate", 0);
+            track.putDouble("packetLossRate", 0);
+            track.putInt("frameRateDelta", 0);
+            return track;
+        }
+
+        long bytesDelta = bytes - previous.bytes;
+        long packetsDelta = Math.max(0, packets - previous.packets);
+        long lostDelta = Math.max(0, packetsLost - previous.packetsLost);
+        long expected = packetsDelta + lostDelta;
+
+        track.putDouble("bitrate", bytesDelta * 8000.0 / elapsed);
+        track.putDouble("packetLossRate", expected > 0 ? lostDelta / (double) expected : 0);
+        track.putInt("frameRateDelta", frameRate - previous.frameRate);
+        return track;
+    }
+}
@@ -7,7 +7,7 @@
 
 package com.twiliorn.library;
 
-import android.util.Log;
+import android.support.annotation.Nullable;
 
 import com.facebook.react.uimanager.ThemedReactContext;
 
@@ -16,13 +16,66 @@ public class TwilioRemotePreview extends RNVideoViewGroup {
 
     private static final String TAG = "TwilioRemotePreview";
 
+    private String sessionId;
+    private String trackSid;
+    // Null until the first props are applied, see bindSession
+    private VideoSession session;
 
-    public TwilioRemotePreview(ThemedReactContext context, String trackSid) {
+    /*
+     * The renderer is registered once the trackSid prop is set.
+     */
+    public TwilioRemotePreview(ThemedReactContext context) {
         super(context);
-        Log.i("CustomTwilioVideoView", "Remote Prview Construct");
-        Log.i("CustomTwilioVideoView", trackSid);
+    }
+
+    public void setSessionId(@Nullable String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public void setTrackSid(@Nullable String trackSid) {
+        this.trackSid = trackSid;
+    }
 
+    /*
+     * Registers the renderer for the track with the session, called once the props of an
+     * update have all been applied so the session and track are changed together.
+     */
+    void bindSession() {
+        String id = VideoSessionManager.resolveId(sessionId);
+        if (session == null || !session.id.equals(id)) {
+            unbindSession();
+            session = VideoSessionManager.bind(id);
+            if (!isRenderingVisible()) {
+                session.getRemoteRendererRegistry().setVisible(getSurfaceViewRenderer(), false);
+            }
+        }
+        session.getRemoteRendererRegistry().setRenderSize(getSurfaceViewRenderer(), getWidth(), getHeight());
+        session.getRemoteRendererRegistry().register(getSurfaceViewRenderer(), trackSid);
+    }
+
+    void unbindSession() {
+        if (session != null) {
+            session.getRemoteRendererRegistry().unregister(getSurfaceViewRenderer());
+            VideoSessionManager.unbind(session);
+            session = null;
+        }
+    }
+
+    @Override
+    protected void onRenderingVisibilityChanged(boolean visible) {
+        if (session != null) {
+            session.getRemoteRendererRegistry().setVisible(getSurfaceViewRenderer(), visible);
+        }
+    }
 
-        CustomTwilioVideoView.registerPrimaryVideoView(this.getSurfaceViewRenderer(), trackSid);
+    /*
+     * The track's priority follows the largest size it is drawn at, see
+     * BandwidthProfileController.
+     */
+    @Override
+    protected void onRenderSizeChanged(int width, int height) {
+        if (session != null) {
+            session.getRemoteRendererRegistry().setRenderSize(getSurfaceViewRenderer(), width, height);
+        }
     }
 }
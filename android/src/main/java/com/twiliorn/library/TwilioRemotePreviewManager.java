@@ -8,7 +8,6 @@
 package com.twiliorn.library;
 
 import android.support.annotation.Nullable;
-import android.util.Log;
 
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
@@ -20,11 +19,11 @@ import org.webrtc.RendererCommon;
 import java.util.Map;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
 public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePreview> {
 
     public static final String REACT_CLASS = "RNTwilioRemotePreview";
-    public String myTrackSid = "";
 
     @Override
     public String getName() {
@@ -41,19 +40,50 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
       }
     }
 
+    @ReactProp(name = "keepLastFrame", defaultBoolean = true)
+    public void setKeepLastFrame(TwilioRemotePreview view, boolean keepLastFrame) {
+        view.setKeepLastFrame(keepLastFrame);
+    }
+
+    @ReactProp(name = "maxRenderFps")
+    public void setMaxRenderFps(TwilioRemotePreview view, int maxRenderFps) {
+        view.getSurfaceViewRenderer().setMaxRenderFps(maxRenderFps);
+    }
+
+    @ReactProp(name = "renderStatsIntervalMs")
+    public void setRenderStatsInterval(TwilioRemotePreview view, int renderStatsIntervalMs) {
+        view.setRenderStatsInterval(renderStatsIntervalMs);
+    }
+
     @ReactProp(name = "trackSid")
     public void setTrackId(TwilioRemotePreview view, @Nullable String trackSid) {
+        view.setTrackSid(trackSid);
+    }
+
+    /*
+     * The room view with the same sessionId provides the track, see CustomTwilioVideoView.
+     */
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioRemotePreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
 
-        Log.i("CustomTwilioVideoView", "Initialize Twilio REMOTE");
-        Log.i("CustomTwilioVideoView", trackSid);
-        myTrackSid = trackSid;
-        CustomTwilioVideoView.registerPrimaryVideoView(view.getSurfaceViewRenderer(), trackSid);
+    @Override
+    protected void onAfterUpdateTransaction(TwilioRemotePreview view) {
+        super.onAfterUpdateTransaction(view);
+        view.bindSession();
     }
 
 
     @Override
     protected TwilioRemotePreview createViewInstance(ThemedReactContext reactContext) {
-        return new TwilioRemotePreview(reactContext, myTrackSid);
+        return new TwilioRemotePreview(reactContext);
+    }
+
+    @Override
+    public void onDropViewInstance(TwilioRemotePreview view) {
+        view.unbindSession();
+        super.onDropViewInstance(view);
     }
 
     @Override
@@ -64,6 +94,11 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
               MapBuilder.of(
                   "phasedRegistrationNames",
                   MapBuilder.of("bubbled", ON_FRAME_DIMENSIONS_CHANGED)))
+          .put(
+            ON_RENDER_STATS,
+              MapBuilder.of(
+                  "phasedRegistrationNames",
+                  MapBuilder.of("bubbled", ON_RENDER_STATS)))
                   .build();
   }
 }
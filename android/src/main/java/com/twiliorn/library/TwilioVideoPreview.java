@@ -6,6 +6,8 @@
  */
 
 package com.twiliorn.library;
+import android.support.annotation.Nullable;
+
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.uimanager.ThemedReactContext;
 
@@ -13,9 +15,48 @@ public class TwilioVideoPreview extends RNVideoViewGroup {
 
     private static final String TAG = "TwilioVideoPreview";
 
+    private String sessionId;
+    // Null until the first props are applied, see bindSession
+    private VideoSession session;
+
     public TwilioVideoPreview(ThemedReactContext themedReactContext) {
         super(themedReactContext);
-        CustomTwilioVideoView.registerThumbnailVideoView(this.getSurfaceViewRenderer());
         this.getSurfaceViewRenderer().applyZOrder(true);
     }
+
+    public void setSessionId(@Nullable String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /*
+     * Renders the local video track of the session, called once the props of an update
+     * have all been applied.
+     */
+    void bindSession() {
+        String id = VideoSessionManager.resolveId(sessionId);
+        if (session != null && session.id.equals(id)) {
+            return;
+        }
+        unbindSession();
+        session = VideoSessionManager.bind(id);
+        if (!isRenderingVisible()) {
+            session.setThumbnailVideoViewVisible(getSurfaceViewRenderer(), false);
+        }
+        session.registerThumbnailVideoView(getSurfaceViewRenderer());
+    }
+
+    void unbindSession() {
+        if (session != null) {
+            session.unregisterThumbnailVideoView(getSurfaceViewRenderer());
+            VideoSessionManager.unbind(session);
+            session = null;
+        }
+    }
+
+    @Override
+    protected void onRenderingVisibilityChanged(boolean visible) {
+        if (session != null) {
+            session.setThumbnailVideoViewVisible(getSurfaceViewRenderer(), visible);
+        }
+    }
 }
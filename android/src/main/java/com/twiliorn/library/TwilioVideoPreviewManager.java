@@ -20,6 +20,7 @@ import java.util.Map;
 import org.webrtc.RendererCommon;
 
 import static com.twiliorn.library.RNVideoViewGroup.Events.ON_FRAME_DIMENSIONS_CHANGED;
+import static com.twiliorn.library.RNVideoViewGroup.Events.ON_RENDER_STATS;
 
 public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPreview> {
 
@@ -39,11 +40,41 @@ public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPrev
       }
     }
 
+    @ReactProp(name = "keepLastFrame", defaultBoolean = true)
+    public void setKeepLastFrame(TwilioVideoPreview view, boolean keepLastFrame) {
+        view.setKeepLastFrame(keepLastFrame);
+    }
+
+    @ReactProp(name = "renderStatsIntervalMs")
+    public void setRenderStatsInterval(TwilioVideoPreview view, int renderStatsIntervalMs) {
+        view.setRenderStatsInterval(renderStatsIntervalMs);
+    }
+
+    @ReactProp(name = "maxRenderFps")
+    public void setMaxRenderFps(TwilioVideoPreview view, int maxRenderFps) {
+        view.getSurfaceViewRenderer().setMaxRenderFps(maxRenderFps);
+    }
+
+    /*
+     * The room view with the same sessionId provides the local video track.
+     */
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioVideoPreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
+    @Override
+    protected void onAfterUpdateTransaction(TwilioVideoPreview view) {
+        super.onAfterUpdateTransaction(view);
+        view.bindSession();
+    }
+
     @Override
     @Nullable
     public Map getExportedCustomDirectEventTypeConstants() {
         Map<String, Map<String, String>> map = MapBuilder.of(
-                ON_FRAME_DIMENSIONS_CHANGED, MapBuilder.of("registrationName", ON_FRAME_DIMENSIONS_CHANGED)
+                ON_FRAME_DIMENSIONS_CHANGED, MapBuilder.of("registrationName", ON_FRAME_DIMENSIONS_CHANGED),
+                ON_RENDER_STATS, MapBuilder.of("registrationName", ON_RENDER_STATS)
         );
 
         return map;
@@ -53,4 +84,10 @@ public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPrev
     protected TwilioVideoPreview createViewInstance(ThemedReactContext reactContext) {
         return new TwilioVideoPreview(reactContext);
     }
+
+    @Override
+    public void onDropViewInstance(TwilioVideoPreview view) {
+        view.unbindSession();
+        super.onDropViewInstance(view);
+    }
 }
@@ -0,0 +1,386 @@
+/**
+ * Steps the local video through a ladder of capture profiles based on the local
+ * participant's network quality level and the round trip time and packet loss of
+ * the local tracks. Degrading happens as soon as conditions are bad, upgrading only
+ * after conditions have been good for a while, and switches are always at least
+ * minSwitchIntervalMs apart so the profile does not thrash.
+ * <p>
+ * Network quality and stats callbacks arrive on the main thread, which is also where
+ * this controller keeps its state and polls stats.
+ */
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.EncodingParameters;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.NetworkQualityLevel;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+import com.twilio.video.VideoConstraints;
+import com.twilio.video.VideoDimensions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class VideoAdaptationController {
+    static final long DEFAULT_MIN_SWITCH_INTERVAL_MS = 10000;
+    private static final long STATS_INTERVAL_MS = 2000;
+    // Conditions have to stay good this long before stepping up
+    private static final long UPGRADE_HOLD_MS = 15000;
+
+    private static final int DEGRADE_NETWORK_QUALITY_LEVEL = 2;
+    private static final int UPGRADE_NETWORK_QUALITY_LEVEL = 4;
+    private static final double DEGRADE_PACKET_LOSS_RATE = 0.05;
+    private static final double UPGRADE_PACKET_LOSS_RATE = 0.01;
+    private static final long DEGRADE_ROUND_TRIP_TIME_MS = 400;
+    private static final long UPGRADE_ROUND_TRIP_TIME_MS = 200;
+
+    static final String REASON_CONFIGURED = "configured";
+    static final String REASON_NETWORK_QUALITY = "networkQuality";
+    static final String REASON_PACKET_LOSS = "packetLoss";
+    static final String REASON_ROUND_TRIP_TIME = "roundTripTime";
+    static final String REASON_RECOVERED = "recovered";
+    static final String REASON_TRACK_CREATION_FAILED = "trackCreationFailed";
+
+    /*
+     * Bitrates are in kbps, 0 leaves the bitrate up to the SDK.
+     */
+    static class Profile {
+        final int width;
+        final int height;
+        final int frameRate;
+        final int maxVideoBitrate;
+        final int maxAudioBitrate;
+
+        Profile(int width, int height, int frameRate, int maxVideoBitrate, int maxAudioBitrate) {
+            this.width = width;
+            this.height = height;
+            this.frameRate = frameRate;
+            this.maxVideoBitrate = maxVideoBitrate;
+            this.maxAudioBitrate = maxAudioBitrate;
+        }
+
+        VideoConstraints toVideoConstraints() {
+            VideoDimensions dimensions = new VideoDimensions(width, height);
+            return new VideoConstraints.Builder()
+                    .minVideoDimensions(dimensions)
+                    .maxVideoDimensions(dimensions)
+                    .minFps(Math.min(5, frameRate))
+                    .maxFps(frameRate)
+                    .build();
+        }
+
+        EncodingParameters toEncodingParameters() {
+            return new EncodingParameters(maxAudioBitrate * 1000, maxVideoBitrate * 1000);
+        }
+
+        /*
+         * Capture constraints are fixed when the track is created, a profile with other
+         * dimensions or frame rate needs a new track.
+         */
+        boolean sameCapture(Profile other) {
+            return width == other.width && height == other.height && frameRate == other.frameRate;
+        }
+
+        WritableMap toMap(int index) {
+            WritableMap map = new WritableNativeMap();
+            map.putInt("index", index);
+            map.putInt("width", width);
+            map.putInt("height", height);
+            map.putInt("frameRate", frameRate);
+            map.putInt("maxVideoBitrate", maxVideoBitrate);
+            map.putInt("maxAudioBitrate", maxAudioBitrate);
+            return map;
+        }
+    }
+
+    interface Listener {
+        void onProfileChanged(Profile profile, Profile previousProfile, WritableMap event);
+    }
+
+    // Lowest to highest, the CIF profile matches the constraints used before adaptation existed
+    private static final List<Profile> DEFAULT_PROFILES = Arrays.asList(
+            new Profile(176, 144, 10, 100, 16),
+            new Profile(352, 288, 15, 300, 0),
+            new Profile(640, 480, 24, 800, 0),
+            new Profile(1280, 720, 30, 1500, 0));
+    private static final int DEFAULT_PROFILE_INDEX = 1;
+
+    private final Listener listener;
+    private final Handler mainThreadHandler = new Handler(Looper.getMainLooper());
+
+    private boolean enabled;
+    private List<Profile> profiles = DEFAULT_PROFILES;
+    private int profileIndex = DEFAULT_PROFILE_INDEX;
+    private long minSwitchIntervalMs = DEFAULT_MIN_SWITCH_INTERVAL_MS;
+    private Room room;
+
+    // Latest signals, -1 while unknown
+    private int networkQualityLevel = -1;
+    private long roundTripTimeMs = -1;
+    private double packetLossRate = -1;
+    private long previousPacketsSent = -1;
+    private long previousPacketsLost = -1;
+
+    private long lastSwitchAt;
+    private long goodSince;
+    private int switchCount;
+    private String lastReason;
+
+    VideoAdaptationController(Listener listener) {
+        this.listener = listener;
+    }
+
+    /*
+     * Returns null when the array is missing or holds no valid profile.
+     */
+    static List<Profile> parseProfiles(ReadableArray array) {
+        if (array == null) {
+            return null;
+        }
+        List<Profile> parsed = new ArrayList<>();
+        for (int i = 0; i < array.size(); i++) {
+            ReadableMap map = array.getMap(i);
+            if (map == null || !map.hasKey("width") || !map.hasKey("height")
+                    || !map.hasKey("frameRate")) {
+                continue;
+            }
+            parsed.add(new Profile(
+                    map.getInt("width"),
+                    map.getInt("height"),
+                    map.getInt("frameRate"),
+                    map.hasKey("maxVideoBitrate") ? map.getInt("maxVideoBitrate") : 0,
+                    map.hasKey("maxAudioBitrate") ? map.getInt("maxAudioBitrate") : 0));
+        }
+        return parsed.isEmpty() ? null : parsed;
+    }
+
+    /*
+     * profiles are ordered from lowest to highest quality, null keeps the built-in ladder.
+     * A negative initialProfile starts from the default profile. The listener is only
+     * called while adaptation is enabled, or when disabling it changes the profile.
+     */
+    void configure(boolean enabled, List<Profile> profiles, int initialProfile,
+                   long minSwitchIntervalMs) {
+        Profile previous = getProfile();
+        boolean wasEnabled = this.enabled;
+        this.enabled = enabled;
+        this.profiles = profiles != null ? profiles : DEFAULT_PROFILES;
+        this.minSwitchIntervalMs = Math.max(0, minSwitchIntervalMs);
+        int defaultIndex = profiles != null ? 0 : DEFAULT_PROFILE_INDEX;
+        profileIndex = initialProfile >= 0
+                ? Math.min(initialProfile, this.profiles.size() - 1)
+                : defaultIndex;
+        goodSince = 0;
+        if (enabled || (wasEnabled && !getProfile().sameCapture(previous))) {
+            notifyProfileChanged(previous, REASON_CONFIGURED);
+        }
+        if (enabled && room != null) {
+            scheduleStats();
+        } else if (!enabled) {
+            mainThreadHandler.removeCallbacks(statsRunnable);
+        }
+    }
+
+    /*
+     * Called by the listener when the local video track could not be created for the new
+     * profile. Goes back to previous and returns the event reporting the failure, the
+     * listener is not called again.
+     */
+    WritableMap revert(Profile previous, String error) {
+        int index = profiles.indexOf(previous);
+        if (index >= 0) {
+            profileIndex = index;
+        }
+        lastSwitchAt = SystemClock.uptimeMillis();
+        goodSince = 0;
+        lastReason = REASON_TRACK_CREATION_FAILED;
+        WritableMap event = new WritableNativeMap();
+        event.putMap("profile", previous.toMap(index));
+        event.putString("reason", REASON_TRACK_CREATION_FAILED);
+        event.putString("error", error);
+        putSignals(event);
+        return event;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    Profile getProfile() {
+        return profiles.get(profileIndex);
+    }
+
+    void start(Room room) {
+        this.room = room;
+        if (enabled) {
+            scheduleStats();
+        }
+    }
+
+    void stop() {
+        mainThreadHandler.removeCallbacks(statsRunnable);
+        room = null;
+        networkQualityLevel = -1;
+        roundTripTimeMs = -1;
+        packetLossRate = -1;
+        previousPacketsSent = -1;
+        previousPacketsLost = -1;
+        goodSince = 0;
+    }
+
+    void onLocalNetworkQualityLevelChanged(NetworkQualityLevel level) {
+        // The first enum constant is UNKNOWN, the others are levels zero to five
+        networkQualityLevel = level.ordinal() - 1;
+        evaluate();
+    }
+
+    WritableMap getMetrics() {
+        WritableMap metrics = new WritableNativeMap();
+        metrics.putBoolean("enabled", enabled);
+        metrics.putMap("profile", getProfile().toMap(profileIndex));
+        metrics.putInt("switches", switchCount);
+        if (lastReason != null) {
+            metrics.putString("lastReason", lastReason);
+        }
+        putSignals(metrics);
+        return metrics;
+    }
+
+    private void scheduleStats() {
+        mainThreadHandler.removeCallbacks(statsRunnable);
+        mainThreadHandler.post(statsRunnable);
+    }
+
+    private final Runnable statsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final Room polledRoom = room;
+            if (!enabled || polledRoom == null) {
+                return;
+            }
+            polledRoom.getStats(new StatsListener() {
+                @Override
+                public void onStats(List<StatsReport> statsReports) {
+                    if (room == polledRoom) {
+                        onStatsReports(statsReports);
+                    }
+                }
+            });
+            mainThreadHandler.postDelayed(this, STATS_INTERVAL_MS);
+        }
+    };
+
+    private void onStatsReports(List<StatsReport> statsReports) {
+        long roundTripTime = -1;
+        long packetsSent = 0;
+        long packetsLost = 0;
+        for (StatsReport sr : statsReports) {
+            for (LocalVideoTrackStats s : sr.getLocalVideoTrackStats()) {
+                roundTripTime = Math.max(roundTripTime, s.roundTripTime);
+                packetsSent += s.packetsSent;
+                packetsLost += s.packetsLost;
+            }
+            for (LocalAudioTrackStats s : sr.getLocalAudioTrackStats()) {
+                roundTripTime = Math.max(roundTripTime, s.roundTripTime);
+            }
+        }
+        roundTripTimeMs = roundTripTime;
+
+        long sentDelta = packetsSent - previousPacketsSent;
+        long lostDelta = packetsLost - previousPacketsLost;
+        if (previousPacketsSent >= 0 && sentDelta >= 0 && lostDelta >= 0
+                && sentDelta + lostDelta > 0) {
+            packetLossRate = lostDelta / (double) (sentDelta + lostDelta);
+        } else {
+            // First report or the counters were reset with a new track
+            packetLossRate = -1;
+        }
+        previousPacketsSent = packetsSent;
+        previousPacketsLost = packetsLost;
+        evaluate();
+    }
+
+    private void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        String degradeReason = null;
+        if (networkQualityLevel >= 0 && networkQualityLevel <= DEGRADE_NETWORK_QUALITY_LEVEL) {
+            degradeReason = REASON_NETWORK_QUALITY;
+        } else if (packetLossRate > DEGRADE_PACKET_LOSS_RATE) {
+            degradeReason = REASON_PACKET_LOSS;
+        } else if (roundTripTimeMs > DEGRADE_ROUND_TRIP_TIME_MS) {
+            degradeReason = REASON_ROUND_TRIP_TIME;
+        }
+        // Without network quality reporting the level stays unknown, then packet loss and
+        // round trip time alone decide, but only once both have been measured
+        boolean networkQualityGood = networkQualityLevel >= 0
+                ? networkQualityLevel >= UPGRADE_NETWORK_QUALITY_LEVEL
+                : packetLossRate >= 0 && roundTripTimeMs >= 0;
+        boolean good = degradeReason == null
+                && networkQualityGood
+                && packetLossRate <= UPGRADE_PACKET_LOSS_RATE
+                && roundTripTimeMs <= UPGRADE_ROUND_TRIP_TIME_MS;
+
+        long now = SystemClock.uptimeMillis();
+        boolean canSwitch = switchCount == 0 || now - lastSwitchAt >= minSwitchIntervalMs;
+        if (degradeReason != null) {
+            goodSince = 0;
+            if (profileIndex > 0 && canSwitch) {
+                switchTo(profileIndex - 1, degradeReason, now);
+            }
+        } else if (good) {
+            if (goodSince == 0) {
+                goodSince = now;
+            }
+            if (profileIndex < profiles.size() - 1 && canSwitch
+                    && now - goodSince >= UPGRADE_HOLD_MS) {
+                switchTo(profileIndex + 1, REASON_RECOVERED, now);
+                // The next step up needs another full hold period
+                goodSince = now;
+            }
+        } else {
+            goodSince = 0;
+        }
+    }
+
+    private void switchTo(int index, String reason, long now) {
+        Profile previous = getProfile();
+        profileIndex = index;
+        lastSwitchAt = now;
+        switchCount++;
+        notifyProfileChanged(previous, reason);
+    }
+
+    private void notifyProfileChanged(Profile previous, String reason) {
+        lastReason = reason;
+        WritableMap event = new WritableNativeMap();
+        event.putMap("profile", getProfile().toMap(profileIndex));
+        event.putString("reason", reason);
+        putSignals(event);
+        listener.onProfileChanged(getProfile(), previous, event);
+    }
+
+    private void putSignals(WritableMap map) {
+        if (networkQualityLevel >= 0) {
+            map.putInt("networkQualityLevel", networkQualityLevel);
+        }
+        if (roundTripTimeMs >= 0) {
+            map.putDouble("roundTripTime", roundTripTimeMs);
+        }
+        if (packetLossRate >= 0) {
+            map.putDouble("packetLossRate", packetLossRate);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Ordered video codec preference passed to ConnectOptions. Without an explicit
+ * preference the order depends on the device: H.264 first when the SDK encodes
+ * H.264 in hardware, VP8 first otherwise, since a software encoder costs far more
+ * CPU than a hardware one. Hardware support is what the SDK's MediaCodecVideoEncoder
+ * reports for this device, read once per process.
+ */
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.H264Codec;
+import com.twilio.video.VideoCodec;
+import com.twilio.video.Vp8Codec;
+import com.twilio.video.Vp9Codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tvi.webrtc.MediaCodecVideoEncoder;
+
+class VideoCodecSelector {
+    private static final String TAG = "VideoCodecSelector";
+
+    static final String H264 = "h264";
+    static final String VP8 = "vp8";
+    static final String VP8_SIMULCAST = "vp8Simulcast";
+    static final String VP9 = "vp9";
+
+    private static Boolean hardwareH264;
+    private static Boolean hardwareVp8;
+    private static Boolean hardwareVp9;
+
+    // Null picks the order from the hardware encoders
+    private List<String> preferredCodecs;
+
+    /*
+     * codecs are the JS names in order of preference, unknown names and entries that are
+     * not strings are skipped. Null or an empty list restores the device default.
+     */
+    void setPreferredCodecs(@Nullable ReadableArray codecs) {
+        preferredCodecs = null;
+        if (codecs == null) {
+            return;
+        }
+        List<String> parsed = new ArrayList<>();
+        for (int i = 0; i < codecs.size(); i++) {
+            String name = codecs.getType(i) == ReadableType.String ? codecs.getString(i) : null;
+            if (toVideoCodec(name) != null && !parsed.contains(name)) {
+                parsed.add(name);
+            }
+        }
+        if (!parsed.isEmpty()) {
+            preferredCodecs = parsed;
+        }
+    }
+
+    List<String> getPreferredCodecNames() {
+        if (preferredCodecs != null) {
+            return preferredCodecs;
+        }
+        detectHardwareEncoders();
+        return hardwareH264 ? Arrays.asList(H264, VP8) : Arrays.asList(VP8, H264);
+    }
+
+    List<VideoCodec> getPreferredCodecs() {
+        List<VideoCodec> codecs = new ArrayList<>();
+        for (String name : getPreferredCodecNames()) {
+            codecs.add(toVideoCodec(name));
+        }
+        return codecs;
+    }
+
+    @Nullable
+    private static VideoCodec toVideoCodec(@Nullable String name) {
+        if (H264.equals(name)) {
+            return new H264Codec();
+        } else if (VP8.equals(name)) {
+            return new Vp8Codec();
+        } else if (VP8_SIMULCAST.equals(name)) {
+            return new Vp8Codec(true);
+        } else if (VP9.equals(name)) {
+            return new Vp9Codec();
+        }
+        return null;
+    }
+
+    private static synchronized void detectHardwareEncoders() {
+        if (hardwareH264 != null) {
+            return;
+        }
+        boolean h264 = false;
+        boolean vp8 = false;
+        boolean vp9 = false;
+        try {
+            // The checks the SDK's encoder uses, they only accept the vendors it supports
+            h264 = MediaCodecVideoEncoder.isH264HwSupported();
+            vp8 = MediaCodecVideoEncoder.isVp8HwSupported();
+            vp9 = MediaCodecVideoEncoder.isVp9HwSupported();
+        } catch (RuntimeException | LinkageError e) {
+            // Some devices throw while listing codecs and a shrunk build may strip the
+            // encoder class, fall back to the software order
+            Log.w(TAG, "Could not check hardware video encoders", e);
+        }
+        hardwareH264 = h264;
+        hardwareVp8 = vp8;
+        hardwareVp9 = vp9;
+    }
+
+    WritableMap getMetrics() {
+        detectHardwareEncoders();
+        WritableMap metrics = new WritableNativeMap();
+        WritableArray preferred = new WritableNativeArray();
+        for (String name : getPreferredCodecNames()) {
+            preferred.pushString(name);
+        }
+        metrics.putArray("preferred", preferred);
+        metrics.putBoolean("deviceDefault", preferredCodecs == null);
+        WritableMap hardwareEncoders = new WritableNativeMap();
+        hardwareEncoders.putBoolean(H264, hardwareH264);
+        hardwareEncoders.putBoolean(VP8, hardwareVp8);
+        hardwareEncoders.putBoolean(VP9, hardwareVp9);
+        metrics.putMap("hardwareEncoders", hardwareEncoders);
+        return metrics;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * What a CustomTwilioVideoView and the previews bound to the same session id share:
+ * the local previews with the local video track they render, and the participant
+ * views with the remote video tracks of the session's room. Previews can bind
+ * before the room view mounts and keep their registration when it unmounts.
+ * <p>
+ * Sessions are handed out by VideoSessionManager and only used on the main thread.
+ */
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.twilio.video.LocalVideoTrack;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+class VideoSession {
+    final String id;
+    // Room views and previews bound to this session, see VideoSessionManager
+    int bindings;
+
+    /*
+     * A VideoView receives frames from a local or remote video track and renders them
+     * to an associated view.
+     */
+    private final Set<PatchedVideoView> thumbnailVideoViews = new CopyOnWriteArraySet<>();
+    // Registered previews that are off-screen or hidden and stay detached until visible again
+    private final Set<PatchedVideoView> hiddenThumbnailVideoViews = new CopyOnWriteArraySet<>();
+    private LocalVideoTrack localVideoTrack;
+    // Local previews are mirrored unless the back camera is capturing
+    private boolean mirror = true;
+
+    /*
+     * Subscribed remote video tracks by SID and the participant views rendering them.
+     */
+    private final RemoteRendererRegistry remoteRendererRegistry = new RemoteRendererRegistry();
+
+    VideoSession(String id) {
+        this.id = id;
+    }
+
+    RemoteRendererRegistry getRemoteRendererRegistry() {
+        return remoteRendererRegistry;
+    }
+
+    /*
+     * The track the local previews render, null detaches them. Must be called before the
+     * previous track is released.
+     */
+    void setLocalVideoTrack(@Nullable LocalVideoTrack track) {
+        if (track != localVideoTrack) {
+            detachThumbnailVideoViews();
+            localVideoTrack = track;
+        }
+        attachThumbnailVideoViews();
+    }
+
+    void setMirror(boolean mirror) {
+        this.mirror = mirror;
+        for (PatchedVideoView thumbnailVideoView : thumbnailVideoViews) {
+            if (thumbnailVideoView.getVisibility() == View.VISIBLE) {
+                thumbnailVideoView.setMirror(mirror);
+            }
+        }
+    }
+
+    /*
+     * Any number of local previews can render the local video track, each one stays attached
+     * across track recreation until it is unregistered.
+     */
+    void registerThumbnailVideoView(PatchedVideoView v) {
+        if (thumbnailVideoViews.add(v)) {
+            attachThumbnailVideoViews();
+        }
+        setMirror(mirror);
+    }
+
+    void unregisterThumbnailVideoView(PatchedVideoView v) {
+        hiddenThumbnailVideoViews.remove(v);
+        if (thumbnailVideoViews.remove(v) && localVideoTrack != null) {
+            localVideoTrack.removeRenderer(v);
+        }
+    }
+
+    /*
+     * Detaches v from the local video track while it is not visible, it is attached again
+     * when it is.
+     */
+    void setThumbnailVideoViewVisible(PatchedVideoView v, boolean visible) {
+        if (visible) {
+            hiddenThumbnailVideoViews.remove(v);
+            attachThumbnailVideoViews();
+        } else if (hiddenThumbnailVideoViews.add(v) && localVideoTrack != null) {
+            localVideoTrack.removeRenderer(v);
+        }
+    }
+
+    private void attachThumbnailVideoViews() {
+        if (localVideoTrack == null) {
+            return;
+        }
+        for (PatchedVideoView thumbnailVideoView : thumbnailVideoViews) {
+            if (!hiddenThumbnailVideoViews.contains(thumbnailVideoView)
+                    && !localVideoTrack.getRenderers().contains(thumbnailVideoView)) {
+                localVideoTrack.addRenderer(thumbnailVideoView);
+                thumbnailVideoView.onRendererAttached();
+            }
+        }
+    }
+
+    private void detachThumbnailVideoViews() {
+        if (localVideoTrack == null) {
+            return;
+        }
+        for (PatchedVideoView thumbnailVideoView : thumbnailVideoViews) {
+            localVideoTrack.removeRenderer(thumbnailVideoView);
+        }
+    }
+
+    boolean isUnused() {
+        return bindings <= 0;
+    }
+
+    /*
+     * Render totals of the participant views and local previews of this session.
+     */
+    WritableArray getRenderStats() {
+        WritableArray renderers = remoteRendererRegistry.getRenderStats();
+        for (PatchedVideoView thumbnailVideoView : thumbnailVideoViews) {
+            WritableMap renderer = thumbnailVideoView.getRenderStats().totals();
+            renderer.putString("kind", "local");
+            renderer.putBoolean("visible", !hiddenThumbnailVideoViews.contains(thumbnailVideoView));
+            renderers.pushMap(renderer);
+        }
+        return renderers;
+    }
+}
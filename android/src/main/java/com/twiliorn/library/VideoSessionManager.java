@@ -0,0 +1,47 @@
+/**
+ * Sessions by id, so that several room views can be mounted at once, for instance a
+ * lobby and a breakout room, each with its own room, tracks, threads and previews.
+ * Room views and previews bind to a session by id, views without one share the
+ * default session so single room apps need no ids. A session is dropped once
+ * nothing is bound to it any more.
+ * <p>
+ * Only used on the main thread.
+ */
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class VideoSessionManager {
+    static final String DEFAULT_SESSION_ID = "default";
+
+    private static final Map<String, VideoSession> sessions = new HashMap<>();
+
+    static String resolveId(@Nullable String sessionId) {
+        return sessionId == null || sessionId.isEmpty() ? DEFAULT_SESSION_ID : sessionId;
+    }
+
+    /*
+     * Returns the session with the given id, created if nothing is bound to it yet. Every
+     * bind has to be matched by an unbind.
+     */
+    static VideoSession bind(@Nullable String sessionId) {
+        String id = resolveId(sessionId);
+        VideoSession session = sessions.get(id);
+        if (session == null) {
+            session = new VideoSession(id);
+            sessions.put(id, session);
+        }
+        session.bindings++;
+        return session;
+    }
+
+    static void unbind(VideoSession session) {
+        session.bindings--;
+        if (session.isUnused() && sessions.get(session.id) == session) {
+            sessions.remove(session.id);
+        }
+    }
+}
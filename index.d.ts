@@ -10,14 +10,49 @@ declare module "react-native-twilio-video-webrtc" {
   type scaleType = "fit" | "fill";
   interface TwilioVideoParticipantViewProps extends ViewProps {
     trackIdentifier: TrackIdentifier;
+    sessionId?: string;
     ref?: React.Ref<any>;
     scaleType?: scaleType;
+    keepLastFrame?: boolean;
+    maxRenderFps?: number;
+    renderStatsIntervalMs?: number;
+    onRenderStats?: (stats: RenderStats) => void;
   }
 
   interface TwilioVideoLocalViewProps extends ViewProps {
     enabled: boolean;
+    sessionId?: string;
     ref?: React.Ref<any>;
     scaleType?: scaleType;
+    maxRenderFps?: number;
+    keepLastFrame?: boolean;
+    renderStatsIntervalMs?: number;
+    onRenderStats?: (stats: RenderStats) => void;
+  }
+
+  interface RenderStats {
+    windowMs: number;
+    fps: number;
+    framesRendered: number;
+    // dropped by maxRenderFps
+    framesDropped: number;
+    averageRenderMs: number;
+    maxRenderMs: number;
+    // upper bounds of the inter-frame interval buckets, intervalCounts has one more open ended bucket
+    intervalBucketsMs: number[];
+    intervalCounts: number[];
+    firstFrameLatencyMs?: number;
+    visible: boolean;
+  }
+
+  interface RendererTotals {
+    kind: "local" | "remote";
+    trackSid?: string;
+    visible: boolean;
+    priority?: TrackPriority;
+    framesRendered: number;
+    framesDropped: number;
+    firstFrameLatencyMs?: number;
   }
 
   interface Participant {
@@ -66,7 +101,322 @@ declare module "react-native-twilio-video-webrtc" {
     qualityLevel: string;
   };
 
+  export type StatsField =
+    | "packetsLost"
+    | "timestamp"
+    | "bytesSent"
+    | "packetsSent"
+    | "roundTripTime"
+    | "bytesReceived"
+    | "packetsReceived"
+    | "audioLevel"
+    | "jitter"
+    | "width"
+    | "height"
+    | "frameRate"
+    | "trackSid"
+    | "codec"
+    | "ssrc";
+
+  export interface StatsOptions {
+    // Android only: flat per-peer-connection arrays instead of one map per track
+    compact?: boolean;
+    // Android only: fields serialized in compact mode, all when empty
+    fields?: StatsField[];
+  }
+
+  export interface TrackStatsSample {
+    trackSid: string;
+    kind: "localAudio" | "localVideo" | "remoteAudio" | "remoteVideo";
+    // null until the codec is negotiated
+    codec: string | null;
+    bitrate: number;
+    packetLossRate: number;
+    frameRate: number;
+    frameRateDelta: number;
+    roundTripTime?: number;
+    audioLevel?: number;
+    jitter?: number;
+  }
+
+  export interface StatsSample {
+    timestamp: number;
+    interval: number;
+    tracks: TrackStatsSample[];
+    localVideoCodec?: string;
+  }
+
+  export interface DataTrackMessage {
+    message: string;
+    isBinary: boolean;
+    byteLength?: number;
+    participantSid?: string;
+  }
+
+  export interface DataTrackTransferProgress {
+    participantSid: string;
+    transferId: number;
+    state: "receiving" | "completed" | "failed";
+    receivedBytes?: number;
+    totalBytes?: number;
+    error?: string;
+  }
+
+  export interface DataTrackError {
+    operation: string;
+    error: string;
+  }
+
+  export interface EventDispatcherMetrics {
+    queueDepth: number;
+    maxQueueDepth: number;
+    highPriorityDispatched: number;
+    batchedDispatched: number;
+    batches: number;
+    coalesced: number;
+    dropped: number;
+    averageLatencyMs: number;
+    maxLatencyMs: number;
+  }
+
+  export interface DataTrackSenderMetrics {
+    queueLength: number;
+    queuedBytes: number;
+    maxQueueBytes: number;
+    queued: number;
+    sent: number;
+    dropped: number;
+    coalesced: number;
+  }
+
+  export interface CompressionBenchmarkResult {
+    size: number;
+    compressedSize: number;
+    deflateMicros: number;
+    inflateMicros: number;
+  }
+
+  export interface VideoProfile {
+    width: number;
+    height: number;
+    frameRate: number;
+    // kbps, 0 leaves the bitrate up to the SDK
+    maxVideoBitrate?: number;
+    maxAudioBitrate?: number;
+  }
+
+  export type VideoProfileChangeReason =
+    | "configured"
+    | "networkQuality"
+    | "packetLoss"
+    | "roundTripTime"
+    | "recovered"
+    | "trackCreationFailed";
+
+  export interface VideoProfileChange {
+    profile: VideoProfile & { index: number };
+    reason: VideoProfileChangeReason;
+    // Set with reason "trackCreationFailed", profile is then the profile kept
+    error?: string;
+    networkQualityLevel?: number;
+    roundTripTime?: number;
+    packetLossRate?: number;
+  }
+
+  export interface VideoAdaptationMetrics {
+    enabled: boolean;
+    profile: VideoProfile & { index: number };
+    switches: number;
+    lastReason?: VideoProfileChangeReason;
+    networkQualityLevel?: number;
+    roundTripTime?: number;
+    packetLossRate?: number;
+  }
+
+  export interface LatencySummary {
+    count: number;
+    lastMs?: number;
+    averageMs?: number;
+    minMs?: number;
+    maxMs?: number;
+  }
+
+  export interface LocalMediaPrepared {
+    prepareMs?: number;
+    shared?: boolean;
+    error?: string;
+  }
+
+  export interface LocalVideoFirstFrame {
+    prewarmed: boolean;
+    joinToFirstFrameMs: number;
+    prepareToFirstFrameMs?: number;
+  }
+
+  export type BackgroundVideoPolicy = "release" | "disable" | "grace";
+
+  export interface LocalVideoResumed {
+    policy: BackgroundVideoPolicy;
+    reusedTrack: boolean;
+    resumeToFirstFrameMs: number;
+  }
+
+  export type ConnectPhase =
+    | "audioTrackCreated"
+    | "capturerCreated"
+    | "videoTrackCreated"
+    | "connectInvoked"
+    | "connected"
+    | "firstRemoteParticipant"
+    | "firstRemoteTrackSubscribed"
+    | "firstRemoteFrameReceived";
+
+  export type ConnectTimelineAggregate = { sessions: number } & {
+    [phase in ConnectPhase]: LatencySummary;
+  };
+
+  export interface ConnectTimeline {
+    outcome: "completed" | "timedOut" | "failed" | "disconnected";
+    prewarmed: boolean;
+    // ms since connect was called, phases that were not reached are missing
+    phases: { [phase in ConnectPhase]?: number };
+    aggregate: ConnectTimelineAggregate;
+  }
+
+  export type RoomReconnectingEventArgs = RoomEventCommonArgs & {
+    error?: string;
+    errorCode?: number;
+    attempts: number;
+    // true when the room was disconnected and connect is retried
+    retrying: boolean;
+    retryDelayMs?: number;
+  };
+
+  export type RoomReconnectedEventArgs = RoomEventCommonArgs & {
+    downtimeMs: number;
+    attempts: number;
+    retried: boolean;
+    republished: ("audio" | "video" | "data")[];
+  };
+
+  export interface ReconnectionMetrics {
+    state: "disconnected" | "connected" | "reconnecting" | "retrying";
+    retryEnabled: boolean;
+    attempts: number;
+    failedRecoveries: number;
+    reconnectDowntime: LatencySummary;
+    retryDowntime: LatencySummary;
+  }
+
+  export type VideoCodecName = "h264" | "vp8" | "vp8Simulcast" | "vp9";
+
+  export interface VideoCodecMetrics {
+    preferred: VideoCodecName[];
+    deviceDefault: boolean;
+    // Codecs the SDK's MediaCodecVideoEncoder encodes in hardware on this device, which only
+    // covers the chipset vendors the SDK enables hardware encoding for
+    hardwareEncoders: { h264: boolean; vp8: boolean; vp9: boolean };
+  }
+
+  export type TrackPriority = "low" | "standard" | "high";
+
+  export interface RenderDimensions {
+    low?: { width: number; height: number };
+    standard?: { width: number; height: number };
+    high?: { width: number; height: number };
+  }
+
+  export interface BandwidthProfileOptions {
+    enabled?: boolean;
+    mode?: "grid" | "collaboration" | "presentation";
+    trackSwitchOffMode?: "predicted" | "detected" | "disabled";
+    maxTracks?: number;
+    maxSubscriptionBitrate?: number;
+    renderDimensions?: RenderDimensions | null;
+    lowBandwidthFallback?: boolean;
+    fallbackNetworkQualityLevel?: number;
+  }
+
+  export interface BandwidthProfileMetrics {
+    enabled: boolean;
+    mode: "grid" | "collaboration" | "presentation";
+    trackSwitchOffMode: "predicted" | "detected" | "disabled";
+    fallbackActive: boolean;
+    fallbackActivations: number;
+    fallbackMs: number;
+  }
+
+  export interface DominantSpeakerOptions {
+    enabled?: boolean;
+    useServer?: boolean;
+    smoothingMs?: number;
+    minHoldMs?: number;
+    minAudioLevel?: number;
+    pollIntervalMs?: number;
+    // audio levels are used until the server reports a dominant speaker, e.g. in P2P rooms
+    serverTimeoutMs?: number;
+  }
+
+  export interface DominantSpeakerChangedEventArgs {
+    roomName: string;
+    roomSid: string;
+    participant?: Participant;
+    source: "server" | "audioLevel";
+  }
+
+  export interface DominantSpeakerMetrics {
+    enabled: boolean;
+    source: "server" | "audioLevel";
+    changes: number;
+    dominantSpeakerSid?: string;
+  }
+
+  export interface RoomSnapshotTrack {
+    trackSid: string;
+    trackName: string;
+    kind: "audio" | "video" | "data";
+    enabled: boolean;
+    // Remote tracks only
+    subscription?: "subscribed" | "unsubscribed" | "failed";
+  }
+
+  export interface RoomSnapshotParticipant {
+    sid: string;
+    identity: string;
+    isLocalUser: boolean;
+    networkQualityLevel?: number;
+    tracks: RoomSnapshotTrack[];
+  }
+
+  export interface RoomSnapshot {
+    state: ReconnectionMetrics["state"];
+    sessionId: string;
+    roomName?: string;
+    roomSid?: string;
+    participants: RoomSnapshotParticipant[];
+  }
+
+  export interface Diagnostics {
+    events?: EventDispatcherMetrics;
+    dataTrackSender?: DataTrackSenderMetrics;
+    videoAdaptation?: VideoAdaptationMetrics;
+    bandwidthProfile?: BandwidthProfileMetrics;
+    dominantSpeaker?: DominantSpeakerMetrics;
+    videoCodecs?: VideoCodecMetrics;
+    sessionId?: string;
+    renderers?: RendererTotals[];
+    localMedia?: {
+      prewarmedJoinToFirstFrame: LatencySummary;
+      coldJoinToFirstFrame: LatencySummary;
+      resumeToFirstFrame: LatencySummary;
+    };
+    connectTimeline?: ConnectTimelineAggregate;
+    reconnection?: ReconnectionMetrics;
+    compressionBenchmark?: CompressionBenchmarkResult[];
+  }
+
   export type TwilioVideoProps = ViewProps & {
+    sessionId?: string;
     onCameraDidStart?: () => void;
     onCameraDidStopRunning?: (err: any) => void;
     onCameraWasInterrupted?: () => void;
@@ -82,13 +432,29 @@ declare module "react-native-twilio-video-webrtc" {
     onParticipantRemovedDataTrack?: TrackEventCb;
     onRoomDidConnect?: RoomEventCb;
     onRoomDidDisconnect?: RoomErrorEventCb;
+    onRoomIsReconnecting?: (data: RoomReconnectingEventArgs) => void;
+    onRoomDidReconnect?: (data: RoomReconnectedEventArgs) => void;
+    onRoomSnapshotReceived?: (snapshot: RoomSnapshot) => void;
+    onDominantSpeakerDidChange?: (event: DominantSpeakerChangedEventArgs) => void;
     onRoomDidFailToConnect?: RoomErrorEventCb;
     onRoomParticipantDidConnect?: ParticipantEventCb;
     onRoomParticipantDidDisconnect?: ParticipantEventCb;
     onNetworkQualityLevelsChanged?: NetworkLevelChangeEventCb;
 
     onStatsReceived?: (data: any) => void;
+    onStatsSampled?: (data: StatsSample) => void;
+    onDiagnosticsReceived?: (data: Diagnostics) => void;
+    onVideoProfileChanged?: (change: VideoProfileChange) => void;
+    onLocalMediaPrepared?: (data: LocalMediaPrepared) => void;
+    onLocalVideoFirstFrame?: (data: LocalVideoFirstFrame) => void;
+    onLocalVideoResumed?: (data: LocalVideoResumed) => void;
+    onConnectTimeline?: (timeline: ConnectTimeline) => void;
     onDataTrackMessageReceived?: ({ message: string }) => void;
+    // message is the payload encoded as base64
+    onDataTrackBinaryMessageReceived?: ({ message: string, byteLength: number }) => void;
+    onDataTrackMessagesReceived?: ({ messages: DataTrackMessage[] }) => void;
+    onDataTrackTransferProgress?: (progress: DataTrackTransferProgress) => void;
+    onDataTrackError?: (error: DataTrackError) => void;
     ref?: React.Ref<any>;
   };
 
@@ -106,6 +472,8 @@ declare module "react-native-twilio-video-webrtc" {
     enableNetworkQualityReporting?: boolean;
   };
 
+  type NetworkQualityVerbosity = "none" | "minimal";
+
   type androidConnectParams = {
     roomName?: string;
     accessToken: string;
@@ -113,6 +481,13 @@ declare module "react-native-twilio-video-webrtc" {
     enableVideo?: boolean;
     enableRemoteAudio?: boolean;
     enableNetworkQualityReporting?: boolean;
+    localNetworkQualityVerbosity?: NetworkQualityVerbosity;
+    remoteNetworkQualityVerbosity?: NetworkQualityVerbosity;
+    // how long a new level has to hold before it is reported
+    networkQualityHoldMs?: number;
+    // in order of preference. By default H.264 comes first only when the SDK encodes H.264
+    // in hardware on this device, VP8 first otherwise
+    preferredVideoCodecs?: VideoCodecName[] | null;
   };
 
   class TwilioVideo extends React.Component<TwilioVideoProps> {
@@ -121,15 +496,62 @@ declare module "react-native-twilio-video-webrtc" {
     setRemoteAudioEnabled: (enabled: boolean) => Promise<boolean>;
     setBluetoothHeadsetConnected: (enabled: boolean) => Promise<boolean>;
     connect: (options: iOSConnectParams | androidConnectParams) => void;
+    prepareLocalMedia: (options?: { enableVideo?: boolean }) => void;
+    setBackgroundVideoPolicy: (options: {
+      policy?: BackgroundVideoPolicy;
+      graceMs?: number;
+    }) => void;
+    configureReconnection: (options?: {
+      retryEnabled?: boolean;
+      maxRetries?: number;
+      initialRetryDelayMs?: number;
+      maxRetryDelayMs?: number;
+    }) => void;
+    configureBandwidthProfile: (options?: BandwidthProfileOptions) => void;
+    configureDominantSpeaker: (options?: DominantSpeakerOptions) => void;
     disconnect: () => void;
     flipCamera: () => void;
     toggleSoundSetup: (speaker: boolean) => void;
-    getStats: () => void;
+    getStats: (options?: StatsOptions) => void;
+    startStatsSampling: (intervalMs?: number) => void;
+    stopStatsSampling: () => void;
+    getDiagnostics: () => void;
+    getRoomSnapshot: () => void;
     publishLocalAudio: () => void;
     unpublishLocalAudio: () => void;
     publishLocalVideo: () => void;
     unpublishLocalVideo: () => void;
-    sendString: (message: string) => void;
+    sendString: (message: string, key?: string) => void;
+    sendBinary: (base64Message: string, key?: string) => void;
+    // Android only, chunk frames can only be reassembled by Android peers on this version
+    sendLarge: (message: string, isBinary?: boolean) => void;
+    // Android only. Compressed messages can only be read by Android peers on this version,
+    // so they are only sent while every remote participant is listed in peerIdentities
+    configureDataTrackCompression: (options: {
+      enabled?: boolean;
+      thresholdBytes?: number;
+      peerIdentities?: string[];
+    }) => void;
+    benchmarkDataTrackCompression: () => void;
+    configureVideoAdaptation: (options: {
+      enabled?: boolean;
+      // lowest to highest quality
+      profiles?: VideoProfile[] | null;
+      initialProfile?: number;
+      minSwitchIntervalMs?: number;
+    }) => void;
+    configureDataTrackReassembly: (options: {
+      maxReassemblyBytes?: number;
+      timeoutMs?: number;
+    }) => void;
+    configureDataTrackMessageBatching: (options: {
+      maxLatencyMs?: number;
+      maxBatchSize?: number;
+    }) => void;
+    configureDataTrackQueue: (options: {
+      maxQueueBytes?: number;
+      overflowPolicy?: "dropOldest" | "reject";
+    }) => void;
   }
 
   class TwilioVideoLocalView extends React.Component<
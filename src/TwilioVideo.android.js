@@ -19,6 +19,14 @@ import PropTypes from 'prop-types'
 
 const propTypes = {
   ...View.propTypes,
+  /**
+   * Binds the view to a session so that several rooms can be mounted at once,
+   * for instance a lobby and a breakout room. Local and participant views render
+   * the tracks of the room view with the same sessionId, views without one share
+   * a default session. The camera track is shared between sessions. Can only be
+   * changed while not connected.
+   */
+  sessionId: PropTypes.string,
   /**
    * Callback that is called when camera source changes
    */
@@ -49,6 +57,42 @@ const propTypes = {
    */
   onRoomDidDisconnect: PropTypes.func,
 
+  /**
+   * Callback that is called when the room lost its connection and is reconnecting.
+   * retrying is true when the room was disconnected and connect is retried after
+   * retryDelayMs (see configureReconnection).
+   *
+   * @param {{roomName, roomSid, error, errorCode, attempts, retrying, retryDelayMs}}
+   */
+  onRoomIsReconnecting: PropTypes.func,
+
+  /**
+   * Callback that is called when the room is back after reconnecting, with how long
+   * it was down and the local tracks that had to be published again.
+   *
+   * @param {{roomName, roomSid, downtimeMs, attempts, retried, republished}}
+   */
+  onRoomDidReconnect: PropTypes.func,
+
+  /**
+   * Callback that is called with the current room state after getRoomSnapshot.
+   * state is disconnected, connected, reconnecting or retrying, each participant
+   * lists its published tracks with kind, enabled and, for remote tracks, subscription
+   * (subscribed, unsubscribed or failed).
+   *
+   * @param {{state, roomName, roomSid, participants}}
+   */
+  onRoomSnapshotReceived: PropTypes.func,
+
+  /**
+   * Called when the dominant speaker changed, participant is missing when nobody
+   * is dominant any more. source is 'server' or 'audioLevel', see
+   * configureDominantSpeaker.
+   *
+   * @param {{roomName, roomSid, participant, source}}
+   */
+  onDominantSpeakerDidChange: PropTypes.func,
+
   /**
    * Called when a new data track has been added
    *
@@ -70,6 +114,38 @@ const propTypes = {
    */
   onDataTrackMessageReceived: PropTypes.func,
 
+  /**
+   * Called when a dataTrack receives a binary message
+   *
+   * @param {{message, byteLength}} message is the payload encoded as base64
+   */
+  onDataTrackBinaryMessageReceived: PropTypes.func,
+
+  /**
+   * Called with buffered dataTrack messages when message batching is enabled
+   * (see configureDataTrackMessageBatching)
+   *
+   * @param {{messages}} Array of {message, isBinary, participantSid}
+   */
+  onDataTrackMessagesReceived: PropTypes.func,
+
+  /**
+   * Called while a payload sent with sendLarge is being reassembled, and when it
+   * completes or fails. The payload itself is delivered like any other message.
+   *
+   * @param {{participantSid, transferId, state, receivedBytes, totalBytes, error}}
+   */
+  onDataTrackTransferProgress: PropTypes.func,
+
+  /**
+   * Called when a message could not be sent on the local data track, e.g. a
+   * sendLarge payload that does not fit in the data track queue or a binary
+   * message that is not valid base64
+   *
+   * @param {{operation, error}}
+   */
+  onDataTrackError: PropTypes.func,
+
   /**
    * Called when a new video track has been added
    *
@@ -136,7 +212,60 @@ const propTypes = {
    */
   onStatsReceived: PropTypes.func,
   /**
-   * Callback that is called when network quality levels are changed (only if enableNetworkQualityReporting in connect is set to true)
+   * Callback that is called with per-track bitrate, packet loss rate and frame rate
+   * deltas while stats sampling is running (after calling startStatsSampling)
+   *
+   * @param {{timestamp, interval, tracks}}
+   */
+  onStatsSampled: PropTypes.func,
+  /**
+   * Callback that is called with native diagnostics (after calling getDiagnostics)
+   *
+   * @param {{events, dataTrackSender, videoAdaptation, renderers, localMedia, connectTimeline, reconnection,
+   * compressionBenchmark}} Event dispatcher, data track queue, video adaptation, per-view render, join latency,
+   * connect phase and reconnect counters, or the results of benchmarkDataTrackCompression
+   */
+  onDiagnosticsReceived: PropTypes.func,
+  /**
+   * Callback that is called when video adaptation switches the local capture profile
+   * (see configureVideoAdaptation). When no video track can be created for the new
+   * profile, reason is 'trackCreationFailed' and profile is the previous profile
+   *
+   * @param {{profile, reason, error, networkQualityLevel, roundTripTime, packetLossRate}}
+   */
+  onVideoProfileChanged: PropTypes.func,
+  /**
+   * Callback that is called once the camera opened by prepareLocalMedia is
+   * capturing, or failed to open
+   *
+   * @param {{prepareMs, error}}
+   */
+  onLocalMediaPrepared: PropTypes.func,
+  /**
+   * Callback that is called with the time from connect to the first captured
+   * local frame, prewarmed tells whether prepareLocalMedia was used
+   *
+   * @param {{prewarmed, joinToFirstFrameMs, prepareToFirstFrameMs}}
+   */
+  onLocalVideoFirstFrame: PropTypes.func,
+  /**
+   * Callback that is called with the time from coming back to the foreground to
+   * the first local frame, see setBackgroundVideoPolicy
+   *
+   * @param {{policy, reusedTrack, resumeToFirstFrameMs}}
+   */
+  onLocalVideoResumed: PropTypes.func,
+  /**
+   * Callback that is called once per connect with the time of each connect phase in
+   * ms since connect was called, and the same phases aggregated across connects.
+   * outcome is completed (first remote frame received), timedOut, failed or disconnected.
+   *
+   * @param {{outcome, prewarmed, phases, aggregate}}
+   */
+  onConnectTimeline: PropTypes.func,
+  /**
+   * Callback that is called when network quality levels are changed (only if enableNetworkQualityReporting in connect is set to true).
+   * A level is only reported once it differs from the last reported level and has held for networkQualityHoldMs.
    */
   onNetworkQualityLevelsChanged: PropTypes.func
 }
@@ -155,7 +284,24 @@ const nativeEvents = {
   toggleBluetoothHeadset: 11,
   sendString: 12,
   publishVideo: 13,
-  publishAudio: 14
+  publishAudio: 14,
+  startStatsSampling: 15,
+  stopStatsSampling: 16,
+  getDiagnostics: 17,
+  sendBinary: 18,
+  configureDataTrackQueue: 19,
+  configureDataTrackMessageBatching: 20,
+  sendLarge: 21,
+  configureDataTrackReassembly: 22,
+  configureDataTrackCompression: 23,
+  benchmarkDataTrackCompression: 24,
+  configureVideoAdaptation: 25,
+  prepareLocalMedia: 26,
+  setBackgroundVideoPolicy: 27,
+  configureReconnection: 28,
+  getRoomSnapshot: 29,
+  configureBandwidthProfile: 30,
+  configureDominantSpeaker: 31
 }
 
 class CustomTwilioVideoView extends Component {
@@ -165,7 +311,11 @@ class CustomTwilioVideoView extends Component {
     enableAudio = true,
     enableVideo = true,
     enableRemoteAudio = true,
-    enableNetworkQualityReporting = false
+    enableNetworkQualityReporting = false,
+    localNetworkQualityVerbosity = 'minimal',
+    remoteNetworkQualityVerbosity = 'minimal',
+    networkQualityHoldMs = 0,
+    preferredVideoCodecs = null
   }) {
     this.runCommand(nativeEvents.connectToRoom, [
       roomName,
@@ -173,13 +323,222 @@ class CustomTwilioVideoView extends Component {
       enableAudio,
       enableVideo,
       enableRemoteAudio,
-      enableNetworkQualityReporting
+      enableNetworkQualityReporting,
+      localNetworkQualityVerbosity,
+      remoteNetworkQualityVerbosity,
+      networkQualityHoldMs,
+      preferredVideoCodecs
     ])
   }
 
-  sendString (message) {
+  /**
+   * Opens the camera ahead of connect so local previews show video before
+   * joining. connect then publishes the same track without restarting it.
+   */
+  prepareLocalMedia ({ enableVideo = true } = {}) {
+    this.runCommand(nativeEvents.prepareLocalMedia, [enableVideo])
+  }
+
+  /**
+   * Chooses what happens to the local video track in the background: 'release'
+   * unpublishes and releases it (the default), 'disable' keeps it published but
+   * disabled, and 'grace' disables it and releases it after graceMs.
+   */
+  setBackgroundVideoPolicy ({ policy = 'release', graceMs = 10000 } = {}) {
+    this.runCommand(nativeEvents.setBackgroundVideoPolicy, [policy, graceMs])
+  }
+
+  /**
+   * The room always reconnects by itself after a network change. With
+   * retryEnabled, connect is also retried with exponential backoff when the room
+   * was disconnected by an error, up to maxRetries times.
+   */
+  configureReconnection ({
+    retryEnabled = false,
+    maxRetries = 5,
+    initialRetryDelayMs = 1000,
+    maxRetryDelayMs = 30000
+  } = {}) {
+    this.runCommand(nativeEvents.configureReconnection, [
+      retryEnabled,
+      maxRetries,
+      initialRetryDelayMs,
+      maxRetryDelayMs
+    ])
+  }
+
+  /**
+   * Queues a message on the local data track. When a key is given, a queued
+   * message with the same key that was not sent yet is replaced by this one.
+   */
+  sendString (message, key = null) {
     this.runCommand(nativeEvents.sendString, [
-      message
+      message,
+      key
+    ])
+  }
+
+  /**
+   * Sends a binary message on the local data track. The payload is passed
+   * base64 encoded and sent as raw bytes. Invalid base64 is reported through
+   * onDataTrackError.
+   */
+  sendBinary (base64Message, key = null) {
+    this.runCommand(nativeEvents.sendBinary, [
+      base64Message,
+      key
+    ])
+  }
+
+  /**
+   * Bounds the outbound data track queue. When it is full, overflowPolicy
+   * 'dropOldest' drops queued messages and 'reject' drops the new message.
+   */
+  configureDataTrackQueue ({ maxQueueBytes = 1024 * 1024, overflowPolicy = 'dropOldest' } = {}) {
+    this.runCommand(nativeEvents.configureDataTrackQueue, [
+      maxQueueBytes,
+      overflowPolicy
+    ])
+  }
+
+  /**
+   * Sends a payload larger than a single data track message in chunks. With
+   * isBinary set, message is base64 encoded binary data. Only Android peers on
+   * this version reassemble the chunks. A payload that does not
+   * fit in the data track queue is dropped and reported through onDataTrackError.
+   */
+  sendLarge (message, isBinary = false) {
+    this.runCommand(nativeEvents.sendLarge, [
+      message,
+      isBinary
+    ])
+  }
+
+  /**
+   * Deflates string messages of at least thresholdBytes before they are sent.
+   * Compressed messages are always inflated natively on receipt. Only Android
+   * peers on this version can read them, so messages are only compressed while
+   * every remote participant's identity is listed in peerIdentities.
+   */
+  configureDataTrackCompression ({ enabled = true, thresholdBytes = 512, peerIdentities = [] } = {}) {
+    this.runCommand(nativeEvents.configureDataTrackCompression, [
+      enabled,
+      thresholdBytes,
+      peerIdentities
+    ])
+  }
+
+  /**
+   * Measures compression cost per message size on the data track sender
+   * thread, results arrive as compressionBenchmark in onDiagnosticsReceived.
+   */
+  benchmarkDataTrackCompression () {
+    this.runCommand(nativeEvents.benchmarkDataTrackCompression, [])
+  }
+
+  /**
+   * Requests a bandwidth profile on the next connect and sets the priority of
+   * each remote video track from the size it is drawn at: up to renderDimensions.low
+   * is low, up to renderDimensions.standard standard, anything larger high. The
+   * server sends each track at the render dimensions of its priority and switches
+   * off low priority tracks first. With lowBandwidthFallback every track is
+   * demoted by one priority while the local network quality level is at or below
+   * fallbackNetworkQualityLevel, which needs enableNetworkQualityReporting.
+   * maxSubscriptionBitrate is in kbps, 0 leaves it and maxTracks to the server.
+   */
+  configureBandwidthProfile ({
+    enabled = true,
+    mode = 'grid',
+    trackSwitchOffMode = 'predicted',
+    maxTracks = 0,
+    maxSubscriptionBitrate = 0,
+    renderDimensions = null,
+    lowBandwidthFallback = true,
+    fallbackNetworkQualityLevel = 1
+  } = {}) {
+    this.runCommand(nativeEvents.configureBandwidthProfile, [
+      enabled,
+      mode,
+      trackSwitchOffMode,
+      maxTracks,
+      maxSubscriptionBitrate,
+      renderDimensions,
+      lowBandwidthFallback,
+      fallbackNetworkQualityLevel
+    ])
+  }
+
+  /**
+   * Reports the dominant speaker with onDominantSpeakerDidChange. useServer asks
+   * the server for dominant speaker detection on the next connect. Otherwise it is
+   * derived from the remote audio levels polled every pollIntervalMs: levels are
+   * smoothed over smoothingMs, the loudest participant at or above minAudioLevel
+   * (0 to 32767) becomes dominant and stays so for at least minHoldMs. The audio
+   * levels also stand in while the server has not reported a dominant speaker
+   * within serverTimeoutMs of connecting, e.g. in peer-to-peer rooms.
+   */
+  configureDominantSpeaker ({
+    enabled = true,
+    useServer = true,
+    smoothingMs = 600,
+    minHoldMs = 1500,
+    minAudioLevel = 1000,
+    pollIntervalMs = 300,
+    serverTimeoutMs = 10000
+  } = {}) {
+    this.runCommand(nativeEvents.configureDominantSpeaker, [
+      enabled,
+      useServer,
+      smoothingMs,
+      minHoldMs,
+      minAudioLevel,
+      pollIntervalMs,
+      serverTimeoutMs
+    ])
+  }
+
+  /**
+   * Adapts the local capture profile and encoding bitrates to the local network
+   * quality level, round trip time and packet loss. profiles are ordered from
+   * lowest to highest quality as {width, height, frameRate, maxVideoBitrate,
+   * maxAudioBitrate} with bitrates in kbps, null uses the built-in ladder.
+   * Without enableNetworkQualityReporting, round trip time and packet loss alone
+   * decide.
+   */
+  configureVideoAdaptation ({
+    enabled = true,
+    profiles = null,
+    initialProfile = -1,
+    minSwitchIntervalMs = 10000
+  } = {}) {
+    this.runCommand(nativeEvents.configureVideoAdaptation, [
+      enabled,
+      profiles,
+      initialProfile,
+      minSwitchIntervalMs
+    ])
+  }
+
+  /**
+   * Bounds the memory held by payloads being reassembled and evicts transfers
+   * that have not received a chunk for timeoutMs.
+   */
+  configureDataTrackReassembly ({ maxReassemblyBytes = 8 * 1024 * 1024, timeoutMs = 10000 } = {}) {
+    this.runCommand(nativeEvents.configureDataTrackReassembly, [
+      maxReassemblyBytes,
+      timeoutMs
+    ])
+  }
+
+  /**
+   * Delivers inbound dataTrack messages in arrays through onDataTrackMessagesReceived,
+   * at most maxLatencyMs after they arrive or once maxBatchSize messages are buffered.
+   * A maxLatencyMs of 0 turns batching off.
+   */
+  configureDataTrackMessageBatching ({ maxLatencyMs = 16, maxBatchSize = 64 } = {}) {
+    this.runCommand(nativeEvents.configureDataTrackMessageBatching, [
+      maxLatencyMs,
+      maxBatchSize
     ])
   }
 
@@ -231,8 +590,36 @@ class CustomTwilioVideoView extends Component {
     return Promise.resolve(enabled)
   }
 
-  getStats () {
-    this.runCommand(nativeEvents.getStats, [])
+  /**
+   * Requests a stats report, delivered through onStatsReceived.
+   *
+   * With compact set, every track category of a peer connection is sent as a
+   * flat array of numbers described by the event's `fields`, and `fields` limits
+   * serialization to the given metric names.
+   */
+  getStats ({ compact = false, fields = [] } = {}) {
+    this.runCommand(nativeEvents.getStats, [compact, fields])
+  }
+
+  startStatsSampling (intervalMs = 1000) {
+    this.runCommand(nativeEvents.startStatsSampling, [intervalMs])
+  }
+
+  stopStatsSampling () {
+    this.runCommand(nativeEvents.stopStatsSampling, [])
+  }
+
+  getDiagnostics () {
+    this.runCommand(nativeEvents.getDiagnostics, [])
+  }
+
+  /**
+   * Requests the participants and tracks of the room as they are now, answered
+   * with onRoomSnapshotReceived. Lets a reloaded or remounted screen catch up
+   * without reconnecting.
+   */
+  getRoomSnapshot () {
+    this.runCommand(nativeEvents.getRoomSnapshot, [])
   }
 
   disableOpenSLES () {
@@ -268,6 +655,10 @@ class CustomTwilioVideoView extends Component {
       'onParticipantAddedDataTrack',
       'onParticipantRemovedDataTrack',
       'onDataTrackMessageReceived',
+      'onDataTrackBinaryMessageReceived',
+      'onDataTrackMessagesReceived',
+      'onDataTrackTransferProgress',
+      'onDataTrackError',
       'onParticipantAddedVideoTrack',
       'onParticipantRemovedVideoTrack',
       'onParticipantAddedAudioTrack',
@@ -279,7 +670,18 @@ class CustomTwilioVideoView extends Component {
       'onParticipantEnabledAudioTrack',
       'onParticipantDisabledAudioTrack',
       'onStatsReceived',
-      'onNetworkQualityLevelsChanged'
+      'onStatsSampled',
+      'onNetworkQualityLevelsChanged',
+      'onDiagnosticsReceived',
+      'onVideoProfileChanged',
+      'onLocalMediaPrepared',
+      'onLocalVideoFirstFrame',
+      'onLocalVideoResumed',
+      'onConnectTimeline',
+      'onRoomIsReconnecting',
+      'onRoomDidReconnect',
+      'onRoomSnapshotReceived',
+      'onDominantSpeakerDidChange'
     ].reduce((wrappedEvents, eventName) => {
       if (this.props[eventName]) {
         return {
@@ -288,7 +690,21 @@ class CustomTwilioVideoView extends Component {
         }
       }
       return wrappedEvents
-    }, {})
+    }, {
+      onEventBatch: data => this.dispatchEventBatch(data.nativeEvent.events)
+    })
+  }
+
+  /**
+   * Events that are not connection or track lifecycle events are delivered
+   * natively in frame-aligned batches, fan them out to the matching callbacks.
+   */
+  dispatchEventBatch (events) {
+    events.forEach(({ name, data }) => {
+      if (this.props[name]) {
+        this.props[name](data)
+      }
+    })
   }
 
   render () {
@@ -7,14 +7,44 @@
 
 import { requireNativeComponent, View } from 'react-native'
 import React from 'react'
+import PropTypes from 'prop-types'
 
 const propTypes = {
-  ...View.propTypes
+  ...View.propTypes,
+  /**
+   * Renders the camera of the TwilioVideo view with the same sessionId
+   */
+  sessionId: PropTypes.string,
+  /**
+   * Caps the frame rate this preview renders at, frames above it are dropped
+   * before they are drawn. Other previews of the same track are not affected.
+   */
+  maxRenderFps: PropTypes.number,
+  /**
+   * The preview stops rendering while it is off-screen or hidden. When set (the
+   * default) it keeps showing the last frame until rendering resumes.
+   */
+  keepLastFrame: PropTypes.bool,
+  /**
+   * Called every renderStatsIntervalMs with the preview's render timing, see
+   * TwilioVideoParticipantView
+   */
+  onRenderStats: PropTypes.func,
+  renderStatsIntervalMs: PropTypes.number
 }
 
 class TwilioVideoPreview extends React.Component {
+  onRenderStats = data => {
+    this.props.onRenderStats(data.nativeEvent)
+  }
+
   render () {
-    return <NativeTwilioVideoPreview {...this.props} />
+    return (
+      <NativeTwilioVideoPreview
+        {...this.props}
+        onRenderStats={this.props.onRenderStats && this.onRenderStats}
+      />
+    )
   }
 }
 
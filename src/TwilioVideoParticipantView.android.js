@@ -19,6 +19,29 @@ class TwilioRemotePreview extends React.Component {
     }),
     onFrameDimensionsChanged: PropTypes.func,
     trackSid: PropTypes.string,
+    /**
+     * Renders a track of the room of the TwilioVideo view with the same sessionId
+     */
+    sessionId: PropTypes.string,
+    /**
+     * The view stops rendering while it is off-screen or hidden. When set (the
+     * default) it keeps showing the last frame until rendering resumes.
+     */
+    keepLastFrame: PropTypes.bool,
+    /**
+     * Caps the frame rate this view renders at, frames above it are dropped
+     * before they are drawn. Useful for small tiles in a grid.
+     */
+    maxRenderFps: PropTypes.number,
+    /**
+     * Called every renderStatsIntervalMs with the view's rendered fps, frames
+     * dropped by maxRenderFps, time spent rendering, an inter-frame interval
+     * histogram and the time from attaching to the first frame.
+     *
+     * @param {{windowMs, fps, framesRendered, framesDropped, averageRenderMs, maxRenderMs, intervalBucketsMs, intervalCounts, firstFrameLatencyMs, visible}}
+     */
+    onRenderStats: PropTypes.func,
+    renderStatsIntervalMs: PropTypes.number,
     renderToHardwareTextureAndroid: PropTypes.string,
     onLayout: PropTypes.string,
     accessibilityLiveRegion: PropTypes.string,
@@ -31,7 +54,8 @@ class TwilioRemotePreview extends React.Component {
 
   buildNativeEventWrappers () {
     return [
-      'onFrameDimensionsChanged'
+      'onFrameDimensionsChanged',
+      'onRenderStats'
     ].reduce((wrappedEvents, eventName) => {
       if (this.props[eventName]) {
         return {